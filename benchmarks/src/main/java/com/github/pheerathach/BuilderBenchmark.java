@@ -0,0 +1,71 @@
+package com.github.pheerathach;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each Builder chain, from {@code new Builder()} to {@code build()}, against the equivalent static factory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuilderBenchmark {
+
+    private final BigDecimal amount = new BigDecimal("1234.50");
+
+    @Benchmark
+    public ThaiQRPromptPay creditTransferMobileNumber() {
+        return new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678").amount(amount).build();
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay creditTransferNationalId() {
+        return new ThaiQRPromptPay.Builder().dynamicQR().creditTransfer().nationalId("1234567890123").amount(amount).build();
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay creditTransferEWalletId() {
+        return new ThaiQRPromptPay.Builder().dynamicQR().creditTransfer().eWalletId("123456789012345").build();
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay billPayment() {
+        return new ThaiQRPromptPay.Builder().dynamicQR().billPayment().billerId("010555012345601")
+                .ref1("INV2024000123").ref2("CUST00042").ref3("TERM01").amount(amount).build();
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay billPaymentSatang() {
+        return new ThaiQRPromptPay.Builder().dynamicQR().billPayment().billerId("010555012345601")
+                .ref1("INV2024000123").ref2("CUST00042").ref3("TERM01").amount(123450L).build();
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay bot() {
+        return new ThaiQRPromptPay.Builder().bot().billPayment().billerId("010555012345601")
+                .ref1("INV2024000123").ref2("CUST00042").amount(amount).build();
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay creditTransferMobileNumberFactory() {
+        return ThaiQRPromptPay.creditTransferMobile("0812345678", 123450L, false);
+    }
+
+    @Benchmark
+    public ThaiQRPromptPay billPaymentFactory() {
+        return ThaiQRPromptPay.billPayment("010555012345601", "INV2024000123", "CUST00042", "TERM01", 123450L, true);
+    }
+}
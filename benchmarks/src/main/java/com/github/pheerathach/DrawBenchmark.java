@@ -0,0 +1,76 @@
+package com.github.pheerathach;
+
+import com.google.zxing.WriterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a bill payment QR image through each draw path at common sizes, and from a {@link QrMatrix}
+ * encoded once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DrawBenchmark {
+
+    @Param({"200", "400", "1000"})
+    public int size;
+
+    private ThaiQRPromptPay qr;
+    private QrMatrix matrix;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException, WriterException {
+        qr = new ThaiQRPromptPay.Builder().dynamicQR().billPayment().billerId("010555012345601")
+                .ref1("INV2024000123").ref2("CUST00042").ref3("TERM01").amount(new BigDecimal("1234.50")).build();
+        matrix = qr.toMatrix();
+        file = File.createTempFile("promptpay-benchmark", ".png");
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public File draw() throws IOException, WriterException {
+        qr.draw(size, size, file);
+        return file;
+    }
+
+    @Benchmark
+    public String drawToBase64() throws IOException, WriterException {
+        return qr.drawToBase64(size, size);
+    }
+
+    @Benchmark
+    public byte[] drawToByteArray() throws IOException, WriterException {
+        return qr.drawToByteArray(size, size);
+    }
+
+    @Benchmark
+    public byte[] matrixDrawToByteArray() throws IOException {
+        return matrix.drawToByteArray(size, size);
+    }
+}
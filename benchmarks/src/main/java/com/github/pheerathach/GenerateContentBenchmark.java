@@ -0,0 +1,76 @@
+package com.github.pheerathach;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding the content of an already built QR, for both output types. Built QRs keep their content after the
+ * first call, so the encoding benchmarks go through the package-private path that encodes on every call; the
+ * {@code Cached} ones measure the public methods returning the kept content.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenerateContentBenchmark {
+
+    private ThaiQRPromptPay creditTransfer;
+    private ThaiQRPromptPay billPayment;
+    private ThaiQRPromptPay bot;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() {
+        BigDecimal amount = new BigDecimal("1234.50");
+        creditTransfer = new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678").amount(amount).build();
+        billPayment = new ThaiQRPromptPay.Builder().dynamicQR().billPayment().billerId("010555012345601")
+                .ref1("INV2024000123").ref2("CUST00042").ref3("TERM01").amount(amount).build();
+        bot = new ThaiQRPromptPay.Builder().bot().billPayment().billerId("010555012345601")
+                .ref1("INV2024000123").ref2("CUST00042").amount(amount).build();
+        buffer = new byte[256];
+    }
+
+    @Benchmark
+    public String promptPayCreditTransfer() {
+        return new String(creditTransfer.encodeContent(), StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public String promptPayBillPayment() {
+        return new String(billPayment.encodeContent(), StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public int promptPayBillPaymentInto() {
+        return billPayment.encodeContentInto(buffer, 0);
+    }
+
+    @Benchmark
+    public String bot3() {
+        return new String(bot.encodeContent(), StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public String promptPayBillPaymentCached() {
+        return billPayment.generateContent();
+    }
+
+    @Benchmark
+    public int promptPayBillPaymentIntoCached() {
+        return billPayment.generateContentInto(buffer, 0);
+    }
+}
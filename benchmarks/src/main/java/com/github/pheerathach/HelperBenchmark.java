@@ -0,0 +1,64 @@
+package com.github.pheerathach;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the checksum and of the field validators in {@link Helper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HelperBenchmark {
+
+    private final byte[] payload = ("00020101021230830016A0000006770101120115010555012345601021"
+            + "3INV20240001230309CUST00042530376454071234.505802TH62100706TERM016304").getBytes(StandardCharsets.US_ASCII);
+
+    @Benchmark
+    public String crc16() {
+        return Helper.crc16(payload);
+    }
+
+    @Benchmark
+    public int crc16Int() {
+        return Helper.crc16(payload, 0, payload.length);
+    }
+
+    @Benchmark
+    public void validateNumeric() {
+        Helper.validateNumeric("Biller ID", "010555012345601");
+    }
+
+    @Benchmark
+    public void validateAlphanumeric() {
+        Helper.validateAlphanumeric("Reference 1", "INV2024000123");
+    }
+
+    @Benchmark
+    public void validateLength() {
+        Helper.validateLength("Reference 1", "INV2024000123", 15);
+    }
+
+    @Benchmark
+    public void validateNumericFailure(Blackhole blackhole) {
+        try {
+            Helper.validateNumeric("Biller ID", "01055501234560X");
+        } catch (IllegalStateException e) {
+            blackhole.consume(e);
+        }
+    }
+}
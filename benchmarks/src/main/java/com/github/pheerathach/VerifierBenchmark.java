@@ -0,0 +1,84 @@
+package com.github.pheerathach;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CRC verification of 10,000 stored payloads: one row after another with {@link Helper#crc16(byte[], int, int)},
+ * against {@link PromptPayVerifier} with its interleaved lanes on a single thread, with and without checking the
+ * structure of every row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VerifierBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private byte[] buffer;
+    private int[] offsets;
+    private ForkJoinPool singleThread;
+
+    @Setup
+    public void setUp() {
+        String[] billerIds = new String[ROWS];
+        String[] ref1s = new String[ROWS];
+        long[] amounts = new long[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            billerIds[i] = "010555012345601";
+            ref1s[i] = "INV" + i;
+            amounts[i] = 100L + i;
+        }
+        PromptPayBatch.Result batch = PromptPayBatch.dynamicQR().generate(billerIds, ref1s, null, null, amounts);
+        buffer = batch.getBuffer();
+        offsets = batch.getOffsets();
+        singleThread = new ForkJoinPool(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public int rowByRow() {
+        int failures = 0;
+        for (int row = 0; row < ROWS; row++) {
+            int end = offsets[row + 1];
+            int crc = Helper.crc16(buffer, offsets[row], end - 4 - offsets[row]);
+            int expected = 0;
+            for (int i = end - 4; i < end; i++) {
+                expected = (expected << 4) | Character.digit(buffer[i], 16);
+            }
+            if (crc != expected) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    @Benchmark
+    public int verifierCrcOnly() {
+        return new PromptPayVerifier().checkStructure(false).verify(buffer, offsets, singleThread).getFailureCount();
+    }
+
+    @Benchmark
+    public int verifier() {
+        return new PromptPayVerifier().verify(buffer, offsets, singleThread).getFailureCount();
+    }
+}
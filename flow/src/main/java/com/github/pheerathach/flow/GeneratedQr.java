@@ -0,0 +1,78 @@
+package com.github.pheerathach.flow;
+
+import com.github.pheerathach.ThaiQRPromptPay;
+
+/**
+ * One row generated by {@link PromptPayPublisher}: the row it came from, and either its QR, payload and image or the
+ * exception that made it fail.
+ *
+ * @param <T> type of the rows
+ */
+public final class GeneratedQr<T> {
+    private final long index;
+    private final T row;
+    private final ThaiQRPromptPay qr;
+    private final String content;
+    private final byte[] image;
+    private final Throwable error;
+
+    private GeneratedQr(long index, T row, ThaiQRPromptPay qr, String content, byte[] image, Throwable error) {
+        this.index = index;
+        this.row = row;
+        this.qr = qr;
+        this.content = content;
+        this.image = image;
+        this.error = error;
+    }
+
+    static <T> GeneratedQr<T> success(long index, T row, ThaiQRPromptPay qr, String content, byte[] image) {
+        return new GeneratedQr<>(index, row, qr, content, image, null);
+    }
+
+    static <T> GeneratedQr<T> failure(long index, T row, Throwable error) {
+        return new GeneratedQr<>(index, row, null, null, null, error);
+    }
+
+    /**
+     * @return The position of the row in the upstream, starting at 0.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public T getRow() {
+        return row;
+    }
+
+    /**
+     * @return The QR, or null if the row failed.
+     */
+    public ThaiQRPromptPay getQr() {
+        return qr;
+    }
+
+    /**
+     * @return The payload, or null if the row failed.
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return The PNG image, or null if the row failed or the publisher does not render images.
+     */
+    public byte[] getImage() {
+        return image;
+    }
+
+    /**
+     * @return Why the row failed, e.g. IllegalStateException for an invalid field, or null if it did not.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
@@ -0,0 +1,318 @@
+package com.github.pheerathach.flow;
+
+import com.github.pheerathach.RenderPool;
+import com.github.pheerathach.ThaiQRPromptPay;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Turns a {@link Flow.Publisher} of rows, such as invoices, into a publisher of {@link GeneratedQr}: each row is
+ * mapped to a {@link ThaiQRPromptPay} (with its {@link ThaiQRPromptPay.Builder} or one of its static factories),
+ * its payload generated and, optionally, its PNG image drawn.
+ * <p>
+ * Rows are generated on an executor, {@link RenderPool#getDefault()} unless specified, with at most
+ * {@link #maxInFlight(int)} rows requested from the upstream but not yet delivered downstream. A slow subscriber
+ * therefore slows the upstream down instead of making rows pile up in memory. Rows are delivered in upstream order
+ * unless {@link #ordered(boolean)} is false, in which case each is delivered as soon as it is ready.
+ * <p>
+ * A row whose mapping or drawing throws is delivered as a failed {@link GeneratedQr}; only an error from the upstream
+ * itself ends the stream with {@code onError}.
+ *
+ * @param <T> type of the rows
+ */
+public final class PromptPayPublisher<T> implements Flow.Publisher<GeneratedQr<T>> {
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final Flow.Publisher<? extends T> rows;
+    private final Function<? super T, ThaiQRPromptPay> mapper;
+    private Executor executor = RenderPool.getDefault();
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private boolean ordered = true;
+    private int width;
+    private int height;
+
+    private PromptPayPublisher(Flow.Publisher<? extends T> rows, Function<? super T, ThaiQRPromptPay> mapper) {
+        this.rows = Objects.requireNonNull(rows, "rows");
+        this.mapper = Objects.requireNonNull(mapper, "mapper");
+    }
+
+    /**
+     * Create a publisher generating the payload of every row
+     *
+     * @param rows   the upstream of rows
+     * @param mapper turns a row into a QR, throwing IllegalStateException if the row is invalid
+     * @param <T>    type of the rows
+     * @return The publisher.
+     */
+    public static <T> PromptPayPublisher<T> from(Flow.Publisher<? extends T> rows, Function<? super T, ThaiQRPromptPay> mapper) {
+        return new PromptPayPublisher<>(rows, mapper);
+    }
+
+    /**
+     * Specify that every row also gets its PNG image drawn
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @return This publisher.
+     */
+    public PromptPayPublisher<T> render(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive numbers.");
+        }
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Specify the executor generating the rows
+     * Default is {@link RenderPool#getDefault()}. A row rejected by the executor is generated on the thread that
+     * delivered it, which slows the upstream down.
+     *
+     * @param executor the executor
+     * @return This publisher.
+     */
+    public PromptPayPublisher<T> executor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * Specify the most rows requested from the upstream and not yet delivered to the subscriber
+     * Default is 4 x available processors
+     *
+     * @param maxInFlight Rows in flight
+     * @return This publisher.
+     */
+    public PromptPayPublisher<T> maxInFlight(int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in flight must be a positive number.");
+        }
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /**
+     * Specify whether rows are delivered in upstream order
+     * Default is true, false delivers each row as soon as it is generated
+     *
+     * @param ordered true to keep the upstream order
+     * @return This publisher.
+     */
+    public PromptPayPublisher<T> ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super GeneratedQr<T>> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        rows.subscribe(new Pipeline<>(subscriber, mapper, executor, maxInFlight, ordered, width, height));
+    }
+
+    /**
+     * Subscribes to the upstream and serves one subscriber. Every signal ends in {@link #drain()}, which only one
+     * thread runs at a time: it delivers ready rows while there is demand, then requests as many rows from the
+     * upstream as the in-flight limit allows.
+     */
+    private static final class Pipeline<T> implements Flow.Subscriber<T>, Flow.Subscription {
+        private final Flow.Subscriber<? super GeneratedQr<T>> downstream;
+        private final Function<? super T, ThaiQRPromptPay> mapper;
+        private final Executor executor;
+        private final int maxInFlight;
+        private final boolean ordered;
+        private final int width;
+        private final int height;
+
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        // Rows received from the upstream and not yet delivered, generated or not
+        private final AtomicLong pending = new AtomicLong();
+        // Rows requested from the upstream and not yet received
+        private final AtomicLong upstreamRequested = new AtomicLong();
+        private final Map<Long, GeneratedQr<T>> readyByIndex;
+        private final Queue<GeneratedQr<T>> readyQueue;
+
+        private volatile Flow.Subscription upstream;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private Throwable error;
+        private long nextIndex;
+        private long nextDelivery;
+        private boolean terminated;
+
+        Pipeline(Flow.Subscriber<? super GeneratedQr<T>> downstream, Function<? super T, ThaiQRPromptPay> mapper,
+                 Executor executor, int maxInFlight, boolean ordered, int width, int height) {
+            this.downstream = downstream;
+            this.mapper = mapper;
+            this.executor = executor;
+            this.maxInFlight = maxInFlight;
+            this.ordered = ordered;
+            this.width = width;
+            this.height = height;
+            this.readyByIndex = ordered ? new ConcurrentHashMap<Long, GeneratedQr<T>>() : null;
+            this.readyQueue = ordered ? null : new ConcurrentLinkedQueue<GeneratedQr<T>>();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (upstream != null) {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T row) {
+            upstreamRequested.decrementAndGet();
+            pending.incrementAndGet();
+            Task task = new Task(nextIndex++, row);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("Request must be a positive number."));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!requested.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                upstream.cancel();
+            }
+        }
+
+        private void ready(GeneratedQr<T> generated) {
+            if (ordered) {
+                readyByIndex.put(generated.getIndex(), generated);
+            } else {
+                readyQueue.offer(generated);
+            }
+            drain();
+        }
+
+        private GeneratedQr<T> pollReady() {
+            if (!ordered) {
+                return readyQueue.poll();
+            }
+            GeneratedQr<T> generated = readyByIndex.remove(nextDelivery);
+            if (generated != null) {
+                nextDelivery++;
+            }
+            return generated;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (terminated) {
+                    return;
+                }
+                long demand = requested.get();
+                long delivered = 0;
+                while (delivered != demand && !cancelled) {
+                    GeneratedQr<T> generated = pollReady();
+                    if (generated == null) {
+                        break;
+                    }
+                    pending.decrementAndGet();
+                    downstream.onNext(generated);
+                    delivered++;
+                }
+                if (cancelled) {
+                    terminated = true;
+                    return;
+                }
+                if (delivered != 0 && demand != Long.MAX_VALUE) {
+                    demand = requested.addAndGet(-delivered);
+                }
+                if (done && pending.get() == 0) {
+                    terminated = true;
+                    if (error != null) {
+                        downstream.onError(error);
+                    } else {
+                        downstream.onComplete();
+                    }
+                    return;
+                }
+                if (!done && demand > 0) {
+                    long more = maxInFlight - pending.get() - upstreamRequested.get();
+                    if (more > 0) {
+                        upstreamRequested.addAndGet(more);
+                        upstream.request(more);
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private final class Task implements Runnable {
+            private final long index;
+            private final T row;
+
+            Task(long index, T row) {
+                this.index = index;
+                this.row = row;
+            }
+
+            @Override
+            public void run() {
+                GeneratedQr<T> generated;
+                try {
+                    ThaiQRPromptPay qr = mapper.apply(row);
+                    String content = qr.generateContent();
+                    byte[] image = width > 0 ? qr.drawToByteArray(width, height) : null;
+                    generated = GeneratedQr.success(index, row, qr, content, image);
+                } catch (Exception e) {
+                    generated = GeneratedQr.failure(index, row, e);
+                }
+                ready(generated);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.pheerathach.flow;
+
+import com.github.pheerathach.ThaiQRPromptPay;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class PromptPayPublisherTest {
+
+    private static final Function<Integer, ThaiQRPromptPay> INVOICE = new Function<Integer, ThaiQRPromptPay>() {
+        @Override
+        public ThaiQRPromptPay apply(Integer invoice) {
+            return ThaiQRPromptPay.billPayment("010555012345601", "INV" + invoice, null, null, 100L + invoice, true);
+        }
+    };
+
+    /**
+     * Requests one row at a time, or {@code batch} rows at a time, and records everything it receives.
+     */
+    private static final class RecordingSubscriber<T> implements Flow.Subscriber<GeneratedQr<T>> {
+        private final long batch;
+        private final List<GeneratedQr<T>> received = Collections.synchronizedList(new ArrayList<GeneratedQr<T>>());
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean completed;
+        private long outstanding;
+
+        RecordingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding = batch;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(GeneratedQr<T> item) {
+            received.add(item);
+            if (--outstanding == 0) {
+                outstanding = batch;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            finished.countDown();
+        }
+
+        void await() throws InterruptedException {
+            Assert.assertTrue(finished.await(30, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void publish(SubmissionPublisher<Integer> publisher, int rows) {
+        for (int i = 0; i < rows; i++) {
+            publisher.submit(i);
+        }
+        publisher.close();
+    }
+
+    @Test
+    public void testOrderedPayloads_thenSuccess() throws InterruptedException {
+        SubmissionPublisher<Integer> upstream = new SubmissionPublisher<>();
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        PromptPayPublisher.from(upstream, INVOICE).maxInFlight(8).subscribe(subscriber);
+        publish(upstream, 200);
+        subscriber.await();
+
+        Assert.assertTrue(subscriber.completed);
+        Assert.assertEquals(200, subscriber.received.size());
+        for (int i = 0; i < 200; i++) {
+            GeneratedQr<Integer> generated = subscriber.received.get(i);
+            Assert.assertEquals(i, generated.getIndex());
+            Assert.assertEquals(Integer.valueOf(i), generated.getRow());
+            Assert.assertEquals(INVOICE.apply(i).generateContent(), generated.getContent());
+            Assert.assertNull(generated.getImage());
+        }
+    }
+
+    @Test
+    public void testUnorderedImagesOnCustomExecutor_thenSuccess() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            SubmissionPublisher<Integer> upstream = new SubmissionPublisher<>();
+            RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+            PromptPayPublisher.from(upstream, INVOICE).executor(executor).ordered(false).render(100, 100).subscribe(subscriber);
+            publish(upstream, 30);
+            subscriber.await();
+
+            Assert.assertEquals(30, subscriber.received.size());
+            boolean[] seen = new boolean[30];
+            for (GeneratedQr<Integer> generated : subscriber.received) {
+                seen[(int) generated.getIndex()] = true;
+                Assert.assertEquals((byte) 0x89, generated.getImage()[0]);
+            }
+            for (boolean row : seen) {
+                Assert.assertTrue(row);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testInFlightIsBounded_thenSuccess() throws InterruptedException {
+        final AtomicInteger mapped = new AtomicInteger();
+        final CountDownLatch firstDelivered = new CountDownLatch(1);
+        SubmissionPublisher<Integer> upstream = new SubmissionPublisher<>();
+        Flow.Subscriber<GeneratedQr<Integer>> stalled = new Flow.Subscriber<GeneratedQr<Integer>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(GeneratedQr<Integer> item) {
+                firstDelivered.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        };
+        PromptPayPublisher.from(upstream, new Function<Integer, ThaiQRPromptPay>() {
+            @Override
+            public ThaiQRPromptPay apply(Integer invoice) {
+                mapped.incrementAndGet();
+                return INVOICE.apply(invoice);
+            }
+        }).maxInFlight(4).subscribe(stalled);
+        for (int i = 0; i < 100; i++) {
+            upstream.offer(i, null);
+        }
+        Assert.assertTrue(firstDelivered.await(30, TimeUnit.SECONDS));
+        Thread.sleep(200);
+
+        // One row delivered, then no more than 4 rows requested while the subscriber wants nothing more
+        Assert.assertTrue(String.valueOf(mapped.get()), mapped.get() <= 5);
+        upstream.close();
+    }
+
+    @Test
+    public void testInvalidRowIsDeliveredAsFailure_thenSuccess() throws InterruptedException {
+        SubmissionPublisher<Integer> upstream = new SubmissionPublisher<>();
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(2);
+        PromptPayPublisher.from(upstream, new Function<Integer, ThaiQRPromptPay>() {
+            @Override
+            public ThaiQRPromptPay apply(Integer invoice) {
+                return ThaiQRPromptPay.creditTransferMobile(invoice == 1 ? "08-1234" : "0812345678", 100L, true);
+            }
+        }).subscribe(subscriber);
+        publish(upstream, 3);
+        subscriber.await();
+
+        Assert.assertTrue(subscriber.completed);
+        Assert.assertFalse(subscriber.received.get(0).isFailed());
+        Assert.assertTrue(subscriber.received.get(1).isFailed());
+        Assert.assertEquals("Mobile Number must contain only numbers.", subscriber.received.get(1).getError().getMessage());
+        Assert.assertNull(subscriber.received.get(1).getContent());
+        Assert.assertFalse(subscriber.received.get(2).isFailed());
+    }
+
+    @Test
+    public void testUpstreamError_thenFailure() throws InterruptedException {
+        SubmissionPublisher<Integer> upstream = new SubmissionPublisher<>();
+        RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        PromptPayPublisher.from(upstream, INVOICE).subscribe(subscriber);
+        upstream.submit(1);
+        upstream.closeExceptionally(new IllegalStateException("Upstream failed."));
+        subscriber.await();
+
+        Assert.assertFalse(subscriber.completed);
+        Assert.assertEquals("Upstream failed.", subscriber.error.getMessage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxInFlightZero_thenFailure() {
+        PromptPayPublisher.from(new SubmissionPublisher<Integer>(), INVOICE).maxInFlight(0);
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.pheerathach.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Encoding the content of a QR, from {@code ThaiQRPromptPay.generateContent()} or the first call needing it.
+ */
+@Name("com.github.pheerathach.GenerateContent")
+@Label("Generate Content")
+@Category("PromptPay")
+@Description("Encoding the payload of a PromptPay QR")
+@StackTrace(false)
+public final class ContentEvent extends jdk.jfr.Event {
+
+    @Label("Output Type")
+    @Description("PROMPTPAY or BOT3")
+    String outputType;
+
+    @Label("Payload Length")
+    int payloadLength;
+}
@@ -0,0 +1,31 @@
+package com.github.pheerathach.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Compressing and writing the PNG image of a QR code.
+ */
+@Name("com.github.pheerathach.ImageWrite")
+@Label("Image Write")
+@Category("PromptPay")
+@Description("Compressing and writing the PNG image of a QR code")
+@StackTrace(false)
+public final class ImageWriteEvent extends jdk.jfr.Event {
+
+    @Label("Width")
+    @Description("Width of the image in pixels")
+    int width;
+
+    @Label("Height")
+    @Description("Height of the image in pixels")
+    int height;
+
+    @Label("Image Size")
+    @DataAmount
+    int imageBytes;
+}
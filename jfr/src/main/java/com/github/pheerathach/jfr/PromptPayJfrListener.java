@@ -0,0 +1,140 @@
+package com.github.pheerathach.jfr;
+
+import com.github.pheerathach.PromptPayInstrumentation;
+import com.github.pheerathach.PromptPayListener;
+import com.github.pheerathach.ThaiQRPromptPay;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Emits {@link ContentEvent}, {@link QrEncodeEvent} and {@link ImageWriteEvent} to Java Flight Recorder, so slow
+ * draws can be lined up with GC pauses and safepoints in the same recording.
+ * <pre>
+ * PromptPayJfrListener.install();
+ * </pre>
+ * An event begins when its stage starts and is committed when it ends, on the same thread. While no recording has
+ * the events enabled, each stage costs one check of the event type and nothing is allocated. Every call is also
+ * passed on to the listener installed before, such as {@code PromptPayMetrics}.
+ */
+public final class PromptPayJfrListener implements PromptPayListener {
+
+    private static final EventType CONTENT = EventType.getEventType(ContentEvent.class);
+    private static final EventType QR_ENCODE = EventType.getEventType(QrEncodeEvent.class);
+    private static final EventType IMAGE_WRITE = EventType.getEventType(ImageWriteEvent.class);
+
+    /**
+     * Events begun on this thread and not yet committed, indexed by stage.
+     */
+    private static final ThreadLocal<Event[]> PENDING = ThreadLocal.withInitial(() -> new Event[Stage.values().length]);
+
+    private final PromptPayListener delegate;
+
+    /**
+     * @param delegate the listener every call is also passed on to, or null
+     */
+    public PromptPayJfrListener(PromptPayListener delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Install a listener emitting JFR events in front of the one currently installed
+     * @return The installed listener.
+     */
+    public static PromptPayJfrListener install() {
+        PromptPayListener current = PromptPayInstrumentation.getListener();
+        PromptPayJfrListener listener = new PromptPayJfrListener(current instanceof PromptPayJfrListener
+                ? ((PromptPayJfrListener) current).delegate : current);
+        PromptPayInstrumentation.setListener(listener);
+        return listener;
+    }
+
+    /**
+     * Remove this listener, putting back the one it passes calls on to
+     */
+    public void uninstall() {
+        if (PromptPayInstrumentation.getListener() == this) {
+            PromptPayInstrumentation.setListener(delegate);
+        }
+    }
+
+    @Override
+    public void onStageStarted(Stage stage) {
+        if (delegate != null) {
+            delegate.onStageStarted(stage);
+        }
+        Event event;
+        switch (stage) {
+            case CONTENT:
+                event = CONTENT.isEnabled() ? new ContentEvent() : null;
+                break;
+            case QR_ENCODE:
+                event = QR_ENCODE.isEnabled() ? new QrEncodeEvent() : null;
+                break;
+            case IMAGE_WRITE:
+                event = IMAGE_WRITE.isEnabled() ? new ImageWriteEvent() : null;
+                break;
+            default:
+                event = null;
+                break;
+        }
+        if (event != null) {
+            event.begin();
+            PENDING.get()[stage.ordinal()] = event;
+        }
+    }
+
+    @Override
+    public void onValidated(long nanos) {
+        if (delegate != null) {
+            delegate.onValidated(nanos);
+        }
+    }
+
+    @Override
+    public void onContentGenerated(ThaiQRPromptPay.OutputType outputType, int payloadLength, long nanos) {
+        if (delegate != null) {
+            delegate.onContentGenerated(outputType, payloadLength, nanos);
+        }
+        ContentEvent event = CONTENT.isEnabled() ? (ContentEvent) take(Stage.CONTENT) : null;
+        if (event != null) {
+            event.outputType = outputType.name();
+            event.payloadLength = payloadLength;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onQrEncoded(int version, int width, int height, long nanos) {
+        if (delegate != null) {
+            delegate.onQrEncoded(version, width, height, nanos);
+        }
+        QrEncodeEvent event = QR_ENCODE.isEnabled() ? (QrEncodeEvent) take(Stage.QR_ENCODE) : null;
+        if (event != null) {
+            event.version = version;
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onImageWritten(int width, int height, int imageBytes, long nanos) {
+        if (delegate != null) {
+            delegate.onImageWritten(width, height, imageBytes, nanos);
+        }
+        ImageWriteEvent event = IMAGE_WRITE.isEnabled() ? (ImageWriteEvent) take(Stage.IMAGE_WRITE) : null;
+        if (event != null) {
+            event.width = width;
+            event.height = height;
+            event.imageBytes = imageBytes;
+            event.commit();
+        }
+    }
+
+    private static Event take(Stage stage) {
+        Event[] pending = PENDING.get();
+        Event event = pending[stage.ordinal()];
+        pending[stage.ordinal()] = null;
+        return event;
+    }
+}
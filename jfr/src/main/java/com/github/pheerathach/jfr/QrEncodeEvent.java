@@ -0,0 +1,29 @@
+package com.github.pheerathach.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Encoding the content as a QR code and scaling it to the requested size.
+ */
+@Name("com.github.pheerathach.QrEncode")
+@Label("QR Encode")
+@Category("PromptPay")
+@Description("Encoding a payload as a QR code matrix scaled to the image size")
+@StackTrace(false)
+public final class QrEncodeEvent extends jdk.jfr.Event {
+
+    @Label("QR Version")
+    int version;
+
+    @Label("Width")
+    @Description("Width of the image in pixels")
+    int width;
+
+    @Label("Height")
+    @Description("Height of the image in pixels")
+    int height;
+}
@@ -0,0 +1,81 @@
+package com.github.pheerathach.jfr;
+
+import com.github.pheerathach.PromptPayInstrumentation;
+import com.github.pheerathach.PromptPayMetrics;
+import com.github.pheerathach.ThaiQRPromptPay;
+import com.google.zxing.WriterException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PromptPayJfrListenerTest {
+
+    @After
+    public void tearDown() {
+        PromptPayInstrumentation.setListener(null);
+    }
+
+    private static ThaiQRPromptPay qr() {
+        return ThaiQRPromptPay.creditTransferMobile("0812345678", 10025L, true);
+    }
+
+    @Test
+    public void testEventsAreRecorded_thenSuccess() throws IOException, WriterException {
+        PromptPayJfrListener.install();
+        Path file = Files.createTempFile("promptpay", ".jfr");
+        List<RecordedEvent> events;
+        ThaiQRPromptPay qr = qr();
+        byte[] image;
+        try (Recording recording = new Recording()) {
+            recording.enable(ContentEvent.class).withoutThreshold();
+            recording.enable(QrEncodeEvent.class).withoutThreshold();
+            recording.enable(ImageWriteEvent.class).withoutThreshold();
+            recording.start();
+            image = qr.drawToByteArray(200, 200);
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        Map<String, RecordedEvent> byName = new HashMap<>();
+        for (RecordedEvent event : events) {
+            byName.put(event.getEventType().getName(), event);
+        }
+        RecordedEvent content = byName.get("com.github.pheerathach.GenerateContent");
+        Assert.assertEquals("PROMPTPAY", content.getString("outputType"));
+        Assert.assertEquals(qr.contentLength(), content.getInt("payloadLength"));
+        RecordedEvent encode = byName.get("com.github.pheerathach.QrEncode");
+        Assert.assertTrue(encode.getInt("version") >= 1);
+        Assert.assertEquals(200, encode.getInt("width"));
+        RecordedEvent write = byName.get("com.github.pheerathach.ImageWrite");
+        Assert.assertEquals(image.length, write.getInt("imageBytes"));
+        Assert.assertFalse(write.getStartTime().isBefore(encode.getEndTime()));
+    }
+
+    @Test
+    public void testDelegateAndUninstall_thenSuccess() throws IOException, WriterException {
+        PromptPayMetrics metrics = new PromptPayMetrics();
+        PromptPayInstrumentation.setListener(metrics);
+        PromptPayJfrListener listener = PromptPayJfrListener.install();
+        Assert.assertSame(listener, PromptPayInstrumentation.getListener());
+
+        qr().drawToByteArray(100, 100);
+        Assert.assertEquals(1, metrics.getValidationCount());
+        Assert.assertEquals(1, metrics.getImageWriteCount());
+
+        listener.uninstall();
+        Assert.assertSame(metrics, PromptPayInstrumentation.getListener());
+    }
+}
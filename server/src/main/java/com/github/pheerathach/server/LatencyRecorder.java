@@ -0,0 +1,86 @@
+package com.github.pheerathach.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latency in power-of-two microsecond buckets, recorded without locking so that it can be shared by every
+ * request thread. Percentiles are reported as the upper bound of the bucket they fall in, so they are accurate to a
+ * factor of two.
+ */
+public final class LatencyRecorder {
+
+    /**
+     * Bucket i counts latencies below 2^i microseconds, the last one everything longer.
+     */
+    private static final int BUCKETS = 32;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMeanMicros() {
+        long requests = count.sum();
+        return requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / requests);
+    }
+
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return The upper bound in microseconds of the bucket holding the percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+                + " mean=" + getMeanMicros() + "us"
+                + " p50<=" + getPercentileMicros(50) + "us"
+                + " p99<=" + getPercentileMicros(99) + "us"
+                + " p99.9<=" + getPercentileMicros(99.9) + "us"
+                + " max=" + getMaxMicros() + "us";
+    }
+}
@@ -0,0 +1,385 @@
+package com.github.pheerathach.server;
+
+import com.github.pheerathach.QrMatrix;
+import com.github.pheerathach.ThaiQRPromptPay;
+import com.google.zxing.WriterException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small HTTP service in front of {@link ThaiQRPromptPay}, built on the JDK's {@code com.sun.net.httpserver}.
+ * <p>
+ * {@code GET /billpayment?billerId=&ref1=[&ref2=][&ref3=]} and
+ * {@code GET /credittransfer?mobileNumber=|nationalId=|eWalletId=} accept {@code amount} in baht (e.g. 100.25),
+ * {@code qr=static|dynamic} (default static), {@code format=payload|png|svg|base64} (default payload) and
+ * {@code size} in pixels for images (default 300). Invalid fields are answered with 400 and the same message as
+ * {@link ThaiQRPromptPay.Builder#build()}.
+ * <p>
+ * Every response carries an ETag made of the payload CRC (tag 63), the format and the size. The URL determines the
+ * payload, so a request whose {@code If-None-Match} matches is answered with 304 before anything is drawn.
+ * {@code GET /metrics} reports the latency of all requests, also available from {@link #getLatency()}.
+ */
+public final class PromptPayServer {
+
+    private static final String USAGE = "Usage: java -jar promptpay-server.jar [options]\n"
+            + "  --host <address>    address to listen on (default: 0.0.0.0)\n"
+            + "  --port <port>       port to listen on (default: 8080)\n"
+            + "  --threads <n>       worker threads when virtual threads are not available (default: available processors)\n"
+            + "  --queue <n>         requests waiting for a worker thread (default: 64 x threads)";
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_SIZE = 300;
+    private static final int MAX_SIZE = 2000;
+    private static final int BACKLOG = 1024;
+
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    private PromptPayServer(HttpServer httpServer, ExecutorService executor) {
+        this.httpServer = httpServer;
+        this.executor = executor;
+        httpServer.createContext("/", new Handler());
+        httpServer.setExecutor(executor);
+    }
+
+    /**
+     * Start a server on the default executor
+     *
+     * @param address the address to listen on, port 0 for any free port
+     * @return The running server.
+     * @throws IOException if the address could not be bound.
+     * @see #newDefaultExecutor(int, int)
+     */
+    public static PromptPayServer start(InetSocketAddress address) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        return start(address, newDefaultExecutor(threads, 64 * threads));
+    }
+
+    /**
+     * Start a server handling requests on the specified executor, which is shut down by {@link #stop(int)}
+     *
+     * @param address  the address to listen on, port 0 for any free port
+     * @param executor the executor running each request
+     * @return The running server.
+     * @throws IOException if the address could not be bound.
+     */
+    public static PromptPayServer start(InetSocketAddress address, ExecutorService executor) throws IOException {
+        PromptPayServer server = new PromptPayServer(HttpServer.create(address, BACKLOG), executor);
+        server.httpServer.start();
+        return server;
+    }
+
+    /**
+     * Returns a virtual-thread-per-request executor on JDKs that have one (21 and later). Otherwise returns a pool
+     * of {@code threads} daemon threads named promptpay-http-N with a queue of {@code queueCapacity} requests. When
+     * the queue is full the request runs on the thread accepting connections, which stops accepting until it is
+     * done and leaves further clients waiting in the TCP backlog instead of growing the queue without bound.
+     *
+     * @param threads       worker threads of the fallback pool
+     * @param queueCapacity requests waiting for a worker thread of the fallback pool
+     * @return The executor.
+     */
+    public static ExecutorService newDefaultExecutor(int threads, int queueCapacity) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            // Before JDK 21, or JDK 19 and 20 without --enable-preview
+            return newBoundedExecutor(threads, queueCapacity);
+        }
+    }
+
+    static ExecutorService newBoundedExecutor(int threads, int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive numbers.");
+        }
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "promptpay-http-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    public LatencyRecorder getLatency() {
+        return latency;
+    }
+
+    /**
+     * Stop accepting requests, wait for the ones in progress, then shut the executor down
+     *
+     * @param delaySeconds the longest time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "0.0.0.0";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = -1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--host".equals(arg)) {
+                    host = args[++i];
+                } else if ("--port".equals(arg)) {
+                    port = Integer.parseInt(args[++i]);
+                } else if ("--threads".equals(arg)) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if ("--queue".equals(arg)) {
+                    queueCapacity = Integer.parseInt(args[++i]);
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        ExecutorService executor = newDefaultExecutor(threads, queueCapacity > 0 ? queueCapacity : 64 * threads);
+        PromptPayServer server = start(new InetSocketAddress(host, port), executor);
+        System.err.println("Listening on " + server.getAddress() + " with " + describe(executor));
+    }
+
+    private static String describe(ExecutorService executor) {
+        return executor instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) executor).getMaximumPoolSize() + " worker threads"
+                : "a virtual thread per request";
+    }
+
+    private final class Handler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            long start = System.nanoTime();
+            try {
+                handleRequest(exchange);
+            } catch (IllegalStateException e) {
+                fail(exchange, 400, e.getMessage());
+            } catch (WriterException e) {
+                fail(exchange, 500, e.getMessage());
+            } catch (RuntimeException e) {
+                fail(exchange, 500, "QR could not be generated.");
+            } finally {
+                exchange.close();
+                latency.record(System.nanoTime() - start);
+            }
+        }
+
+        private void handleRequest(HttpExchange exchange) throws IOException, WriterException {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                send(exchange, 405, "Method must be GET or HEAD.");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if ("/metrics".equals(path)) {
+                send(exchange, 200, latency.toString());
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            ThaiQRPromptPay qr;
+            if ("/billpayment".equals(path)) {
+                qr = ThaiQRPromptPay.billPayment(query.get("billerId"), query.get("ref1"), query.get("ref2"),
+                        query.get("ref3"), parseSatang(query.get("amount")), isDynamic(query));
+            } else if ("/credittransfer".equals(path)) {
+                qr = creditTransfer(query);
+            } else {
+                send(exchange, 404, "Path must be /billpayment, /credittransfer or /metrics.");
+                return;
+            }
+
+            String format = query.containsKey("format") ? query.get("format") : "payload";
+            int size = parseSize(query.get("size"));
+            String content = qr.generateContent();
+            String contentType;
+            String etag;
+            if ("payload".equals(format)) {
+                contentType = "text/plain; charset=US-ASCII";
+                etag = "\"" + crc(content) + "\"";
+            } else if ("png".equals(format) || "svg".equals(format) || "base64".equals(format)) {
+                contentType = "png".equals(format) ? "image/png"
+                        : "svg".equals(format) ? "image/svg+xml" : "text/plain; charset=US-ASCII";
+                etag = "\"" + crc(content) + "-" + format + "-" + size + "\"";
+            } else {
+                throw new IllegalStateException("Format must be payload, png, svg or base64.");
+            }
+
+            exchange.getResponseHeaders().set("ETag", etag);
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || "*".equals(ifNoneMatch.trim()))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            if (head) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            if ("payload".equals(format)) {
+                write(exchange, 200, content.getBytes(StandardCharsets.US_ASCII));
+            } else if ("svg".equals(format)) {
+                StringBuilder svg = new StringBuilder();
+                qr.toMatrix().drawToSvg(size, size, svg);
+                write(exchange, 200, svg.toString().getBytes(StandardCharsets.US_ASCII));
+            } else {
+                // Encoded before the headers are committed, so a failure can still be reported with its status
+                QrMatrix matrix = qr.toMatrix();
+                // Chunked, so the image is written straight into the response
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream body = "png".equals(format)
+                        ? exchange.getResponseBody()
+                        : Base64.getEncoder().wrap(exchange.getResponseBody());
+                matrix.drawTo(size, size, body);
+                body.close();
+            }
+        }
+    }
+
+    private static ThaiQRPromptPay creditTransfer(Map<String, String> query) {
+        long satang = parseSatang(query.get("amount"));
+        boolean dynamic = isDynamic(query);
+        if (query.containsKey("nationalId")) {
+            return ThaiQRPromptPay.creditTransferNationalId(query.get("nationalId"), satang, dynamic);
+        }
+        if (query.containsKey("eWalletId")) {
+            return ThaiQRPromptPay.creditTransferEWallet(query.get("eWalletId"), satang, dynamic);
+        }
+        return ThaiQRPromptPay.creditTransferMobile(query.get("mobileNumber"), satang, dynamic);
+    }
+
+    private static boolean isDynamic(Map<String, String> query) {
+        String qr = query.get("qr");
+        if (qr == null || "static".equals(qr)) {
+            return false;
+        }
+        if ("dynamic".equals(qr)) {
+            return true;
+        }
+        throw new IllegalStateException("QR type must be static or dynamic.");
+    }
+
+    private static long parseSatang(String amount) {
+        if (amount == null || amount.isEmpty()) {
+            return ThaiQRPromptPay.NO_AMOUNT;
+        }
+        BigDecimal decimal;
+        try {
+            decimal = new BigDecimal(amount);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Amount must contain only numbers.");
+        }
+        if (decimal.signum() < 0) {
+            throw new IllegalStateException("Amount must be a positive number.");
+        }
+        if (decimal.stripTrailingZeros().scale() > 2) {
+            throw new IllegalStateException("Amount must be in two-digit decimal place format.");
+        }
+        BigDecimal satang = decimal.movePointRight(2);
+        // Anything too large is reported by the factory's own length check
+        return satang.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0 ? Long.MAX_VALUE : satang.longValue();
+    }
+
+    private static int parseSize(String size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        try {
+            int pixels = Integer.parseInt(size);
+            if (pixels > 0 && pixels <= MAX_SIZE) {
+                return pixels;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalStateException("Size must be between 1 and " + MAX_SIZE + ".");
+    }
+
+    private static String crc(String content) {
+        return content.substring(content.length() - 4);
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        try {
+            for (String pair : rawQuery.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator < 0) {
+                    query.put(URLDecoder.decode(pair, "UTF-8"), "");
+                } else {
+                    query.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                            URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Query must be URL encoded.");
+        }
+        return query;
+    }
+
+    /**
+     * Sends the error unless the headers are already out, in which case the client only sees the response cut short.
+     */
+    private static void fail(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() == -1) {
+            send(exchange, status, message);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+        write(exchange, status, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void write(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
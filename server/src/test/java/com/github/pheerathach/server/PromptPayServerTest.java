@@ -0,0 +1,184 @@
+package com.github.pheerathach.server;
+
+import com.github.pheerathach.PromptPayInstrumentation;
+import com.github.pheerathach.PromptPayListener;
+import com.github.pheerathach.ThaiQRPromptPay;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+public class PromptPayServerTest {
+
+    private PromptPayServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = PromptPayServer.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpURLConnection open(String pathAndQuery) throws IOException {
+        return (HttpURLConnection) new URL("http://127.0.0.1:" + server.getAddress().getPort() + pathAndQuery).openConnection();
+    }
+
+    private static byte[] body(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static String text(HttpURLConnection connection) throws IOException {
+        return new String(body(connection), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testBillPaymentPayload_thenSuccess() throws IOException {
+        HttpURLConnection connection = open("/billpayment?billerId=000000000000099&ref1=15123141&ref2=3654112&amount=200.00&qr=dynamic");
+        Assert.assertEquals(200, connection.getResponseCode());
+        String expected = ThaiQRPromptPay.billPayment("000000000000099", "15123141", "3654112", null, 20000L, true).generateContent();
+        Assert.assertEquals(expected, text(connection));
+        Assert.assertEquals("\"" + expected.substring(expected.length() - 4) + "\"", connection.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void testCreditTransferPayload_thenSuccess() throws IOException {
+        Assert.assertEquals(ThaiQRPromptPay.creditTransferMobile("0812345678", ThaiQRPromptPay.NO_AMOUNT, false).generateContent(),
+                text(open("/credittransfer?mobileNumber=0812345678")));
+        Assert.assertEquals(ThaiQRPromptPay.creditTransferNationalId("1234567890123", 10025L, false).generateContent(),
+                text(open("/credittransfer?nationalId=1234567890123&amount=100.25")));
+        Assert.assertEquals(ThaiQRPromptPay.creditTransferEWallet("123456789012345", 100L, true).generateContent(),
+                text(open("/credittransfer?eWalletId=123456789012345&amount=1&qr=dynamic")));
+    }
+
+    @Test
+    public void testImageFormats_thenSuccess() throws IOException {
+        HttpURLConnection png = open("/credittransfer?mobileNumber=0812345678&format=png&size=250");
+        Assert.assertEquals("image/png", png.getContentType());
+        BufferedImage image = ImageIO.read(png.getInputStream());
+        Assert.assertEquals(250, image.getWidth());
+        Assert.assertEquals(250, image.getHeight());
+
+        byte[] base64 = body(open("/credittransfer?mobileNumber=0812345678&format=base64&size=250"));
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(base64)));
+        Assert.assertEquals(250, decoded.getWidth());
+
+        HttpURLConnection svg = open("/credittransfer?mobileNumber=0812345678&format=svg&size=250");
+        Assert.assertEquals("image/svg+xml", svg.getContentType());
+        String document = text(svg);
+        Assert.assertTrue(document.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"250\" height=\"250\""));
+        Assert.assertTrue(document.endsWith("\"/></svg>"));
+    }
+
+    @Test
+    public void testIfNoneMatch_thenSuccess() throws IOException {
+        HttpURLConnection first = open("/billpayment?billerId=000000000000099&ref1=15123141&format=png");
+        Assert.assertEquals(200, first.getResponseCode());
+        String etag = first.getHeaderField("ETag");
+        body(first);
+        Assert.assertTrue(etag.endsWith("-png-300\""));
+
+        HttpURLConnection second = open("/billpayment?billerId=000000000000099&ref1=15123141&format=png");
+        second.setRequestProperty("If-None-Match", etag);
+        Assert.assertEquals(304, second.getResponseCode());
+
+        HttpURLConnection otherSize = open("/billpayment?billerId=000000000000099&ref1=15123141&format=png&size=301");
+        otherSize.setRequestProperty("If-None-Match", etag);
+        Assert.assertEquals(200, otherSize.getResponseCode());
+        body(otherSize);
+    }
+
+    @Test
+    public void testInvalidRequest_thenFailure() throws IOException {
+        HttpURLConnection missingRef1 = open("/billpayment?billerId=000000000000099");
+        Assert.assertEquals(400, missingRef1.getResponseCode());
+        Assert.assertEquals("Reference 1 is required.", text(missingRef1));
+
+        HttpURLConnection amount = open("/credittransfer?mobileNumber=0812345678&amount=1.234");
+        Assert.assertEquals(400, amount.getResponseCode());
+        Assert.assertEquals("Amount must be in two-digit decimal place format.", text(amount));
+
+        Assert.assertEquals(400, open("/credittransfer?mobileNumber=0812345678&format=gif").getResponseCode());
+        Assert.assertEquals(400, open("/credittransfer?mobileNumber=0812345678&format=png&size=0").getResponseCode());
+        Assert.assertEquals(404, open("/unknown").getResponseCode());
+
+        HttpURLConnection post = open("/credittransfer?mobileNumber=0812345678");
+        post.setRequestMethod("POST");
+        Assert.assertEquals(405, post.getResponseCode());
+    }
+
+    @Test
+    public void testImageEncodingFailure_thenFailure() throws IOException {
+        PromptPayInstrumentation.setListener(new PromptPayListener() {
+            @Override
+            public void onStageStarted(Stage stage) {
+                if (stage == Stage.QR_ENCODE) {
+                    throw new IllegalArgumentException("Encoder is broken.");
+                }
+            }
+        });
+        try {
+            for (String format : new String[]{"png", "base64"}) {
+                HttpURLConnection image = open("/credittransfer?mobileNumber=0812345678&format=" + format);
+                Assert.assertEquals(500, image.getResponseCode());
+                Assert.assertEquals("QR could not be generated.", text(image));
+            }
+        } finally {
+            PromptPayInstrumentation.setListener(null);
+        }
+    }
+
+    @Test
+    public void testLatencyIsRecorded_thenSuccess() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            body(open("/credittransfer?mobileNumber=0812345678"));
+        }
+        String metrics = text(open("/metrics"));
+        Assert.assertTrue(metrics, metrics.startsWith("count=5 "));
+        Assert.assertTrue(server.getLatency().getCount() >= 5);
+        Assert.assertTrue(server.getLatency().getPercentileMicros(50) <= server.getLatency().getPercentileMicros(99));
+    }
+
+    @Test
+    public void testParseQuery_thenSuccess() {
+        Map<String, String> query = PromptPayServer.parseQuery("ref1=A%20B&flag&amount=1.50");
+        Assert.assertEquals("A B", query.get("ref1"));
+        Assert.assertEquals("", query.get("flag"));
+        Assert.assertEquals("1.50", query.get("amount"));
+    }
+
+    @Test
+    public void testBoundedExecutorNamesThreads_thenSuccess() throws Exception {
+        ExecutorService executor = PromptPayServer.newBoundedExecutor(1, 1);
+        try {
+            String name = executor.submit(() -> Thread.currentThread().getName()).get();
+            Assert.assertEquals("promptpay-http-1", name);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.github.pheerathach;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Encodes the bytes written to it as standard Base64 (RFC 4648, no line breaks) straight into an Appendable or,
+ * as ASCII, an OutputStream, so an image can be embedded without holding its bytes and their encoding in memory.
+ * <p>
+ * {@link #close()} writes the final padded group but does not close the sink.
+ */
+final class Base64Encoder extends OutputStream {
+
+    protected static final String DATA_URI_PREFIX = "data:image/png;base64,";
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Appendable appendable;
+    private final OutputStream outputStream;
+    private final char[] chars;
+    private final byte[] bytes;
+    private int length;
+    private int pending;
+    private int pendingCount;
+    private boolean closed;
+
+    Base64Encoder(Appendable appendable) {
+        this.appendable = appendable;
+        this.outputStream = null;
+        this.chars = new char[BUFFER_SIZE];
+        this.bytes = null;
+    }
+
+    Base64Encoder(OutputStream outputStream) {
+        this.appendable = null;
+        this.outputStream = outputStream;
+        this.chars = null;
+        this.bytes = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * @return The number of characters needed to encode the specified number of bytes.
+     */
+    protected static int encodedLength(int length) {
+        return (length + 2) / 3 * 4;
+    }
+
+    protected static void encode(byte[] src, int offset, int length, StringBuilder dst) throws IOException {
+        try (Base64Encoder encoder = new Base64Encoder(dst)) {
+            encoder.write(src, offset, length);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        pending = (pending << 8) | (b & 0xFF);
+        if (++pendingCount == 3) {
+            emit(pending, 4);
+            pending = 0;
+            pendingCount = 0;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        while (pendingCount != 0 && off < end) {
+            write(b[off++]);
+        }
+        for (; end - off >= 3; off += 3) {
+            emit(((b[off] & 0xFF) << 16) | ((b[off + 1] & 0xFF) << 8) | (b[off + 2] & 0xFF), 4);
+        }
+        while (off < end) {
+            write(b[off++]);
+        }
+    }
+
+    /**
+     * Writes the last one or two bytes as a padded group and flushes the encoded characters into the sink.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pendingCount > 0) {
+            emit(pending << (8 * (3 - pendingCount)), pendingCount + 1);
+            for (int i = pendingCount; i < 3; i++) {
+                put('=');
+            }
+        }
+        flushBuffer();
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+    }
+
+    private void emit(int group, int count) throws IOException {
+        if (length + 4 > BUFFER_SIZE) {
+            flushBuffer();
+        }
+        for (int i = 0; i < count; i++) {
+            put(ALPHABET[(group >>> (18 - 6 * i)) & 0x3F]);
+        }
+    }
+
+    private void put(char c) {
+        if (chars != null) {
+            chars[length++] = c;
+        } else {
+            bytes[length++] = (byte) c;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (outputStream != null) {
+            outputStream.write(bytes, 0, length);
+        } else if (appendable instanceof StringBuilder) {
+            ((StringBuilder) appendable).append(chars, 0, length);
+        } else if (appendable instanceof Writer) {
+            ((Writer) appendable).write(chars, 0, length);
+        } else {
+            appendable.append(CharBuffer.wrap(chars, 0, length));
+        }
+        length = 0;
+    }
+}
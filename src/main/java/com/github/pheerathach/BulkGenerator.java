@@ -0,0 +1,487 @@
+package com.github.pheerathach;
+
+import com.github.pheerathach.ValidationResult.ErrorCode;
+import com.github.pheerathach.ValidationResult.Violation;
+import com.google.zxing.WriterException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line entry point streaming a CSV or TSV file of Bill Payment or Credit Transfer rows through
+ * {@link ThaiQRPromptPay.Builder}, writing payload lines, Base64 PNG lines or PNG files.
+ * <p>
+ * The first line is a header naming the columns: {@code billerId, ref1, ref2, ref3} for Bill Payment or
+ * {@code mobileNumber, nationalId, eWalletId} for Credit Transfer, plus optional {@code amount} and {@code id}
+ * (used as the PNG file name). Rows are read one at a time and handed to the workers through a bounded queue,
+ * so memory use does not depend on the size of the input. Output keeps the input order; a row that fails
+ * validation is reported on the error stream and written as an empty line.
+ */
+public final class BulkGenerator {
+
+    private static final String USAGE = "Usage: java -jar promptpay-cli.jar [options] <input.csv|input.tsv|->\n"
+            + "  --qr static|dynamic|bot   QR type (default: static)\n"
+            + "  --format payload|base64|png\n"
+            + "                            output payload lines, Base64 PNG lines or PNG files (default: payload)\n"
+            + "  --size <pixels>           width and height of images (default: 300)\n"
+            + "  --out <path|->            output file, directory for png, or - for standard output (default: -)\n"
+            + "  --delimiter <char|tab>    column delimiter (default: tab for .tsv, otherwise comma)\n"
+            + "  --workers <n>             number of worker threads (default: available processors)\n"
+            + "  --queue <n>               maximum rows in flight (default: 4 x workers)";
+
+    private static final Future<Output> END = new FutureTask<>(new Callable<Output>() {
+        @Override
+        public Output call() {
+            return null;
+        }
+    });
+
+    private String qrType = "static";
+    private String format = "payload";
+    private int size = 300;
+    private String out = "-";
+    private char delimiter;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = -1;
+    private String input;
+
+    private BulkGenerator() {
+
+    }
+
+    public static void main(String[] args) {
+        BulkGenerator generator;
+        try {
+            generator = fromArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        try {
+            int failures = generator.run();
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Generation failed: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    static BulkGenerator fromArguments(String... args) {
+        BulkGenerator generator = new BulkGenerator();
+        generator.parseArguments(args);
+        return generator;
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                if (input != null) {
+                    throw new IllegalArgumentException("Only one input is allowed.");
+                }
+                input = arg;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg + ".");
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--qr":
+                    qrType = value.toLowerCase(Locale.ROOT);
+                    if (!qrType.equals("static") && !qrType.equals("dynamic") && !qrType.equals("bot")) {
+                        throw new IllegalArgumentException("Unknown QR type " + value + ".");
+                    }
+                    break;
+                case "--format":
+                    format = value.toLowerCase(Locale.ROOT);
+                    if (!format.equals("payload") && !format.equals("base64") && !format.equals("png")) {
+                        throw new IllegalArgumentException("Unknown format " + value + ".");
+                    }
+                    break;
+                case "--size":
+                    size = parsePositive(arg, value);
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                case "--delimiter":
+                    if (value.equalsIgnoreCase("tab") || value.equals("\\t")) {
+                        delimiter = '\t';
+                    } else if (value.length() == 1) {
+                        delimiter = value.charAt(0);
+                    } else {
+                        throw new IllegalArgumentException("Delimiter must be a single char or tab.");
+                    }
+                    break;
+                case "--workers":
+                    workers = parsePositive(arg, value);
+                    break;
+                case "--queue":
+                    queueCapacity = parsePositive(arg, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg + ".");
+            }
+        }
+        if (input == null) {
+            throw new IllegalArgumentException("Missing input.");
+        }
+        if (format.equals("png") && out.equals("-")) {
+            throw new IllegalArgumentException("PNG files need an output directory, use --format base64 to write them to a stream.");
+        }
+        if (delimiter == 0) {
+            delimiter = input.toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+        }
+        if (queueCapacity < 0) {
+            queueCapacity = 4 * workers;
+        }
+    }
+
+    private static int parsePositive(String name, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException(name + " must be a positive number.");
+    }
+
+    private int run() throws IOException, InterruptedException {
+        File directory = null;
+        if (format.equals("png")) {
+            directory = new File(out);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create directory " + out + ".");
+            }
+        }
+        try (InputStream inputStream = input.equals("-") ? System.in : new FileInputStream(input);
+             OutputStream outputStream = directory != null ? null : out.equals("-") ? System.out : new FileOutputStream(out);
+             Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+             Writer writer = outputStream == null ? null : new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.US_ASCII))) {
+            return generate(new BufferedReader(reader), writer, directory);
+        }
+    }
+
+    /**
+     * Reads rows on the calling thread, renders them on the workers and writes them in input order on a writer thread.
+     * At most {@code queueCapacity} rows are pending at any time, the reader blocks when the queue is full.
+     */
+    int generate(BufferedReader reader, final Writer writer, final File directory) throws IOException, InterruptedException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return 0;
+        }
+        final Header header = new Header(split(headerLine, delimiter));
+        final BlockingQueue<Future<Output>> pending = new ArrayBlockingQueue<>(queueCapacity);
+        final AtomicInteger failures = new AtomicInteger();
+        final IOException[] writeError = new IOException[1];
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "promptpay-bulk-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        Thread writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (Future<Output> future = pending.take(); future != END; future = pending.take()) {
+                        write(future, writer, failures);
+                    }
+                    if (writer != null) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    writeError[0] = e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "promptpay-bulk-writer");
+        writerThread.start();
+        try {
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null && writerThread.isAlive()) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final String[] columns = split(line, delimiter);
+                final int row = lineNumber;
+                Future<Output> future = executor.submit(new Callable<Output>() {
+                    @Override
+                    public Output call() throws IOException, WriterException {
+                        return render(header, columns, row, directory);
+                    }
+                });
+                if (!enqueue(pending, future, writerThread)) {
+                    break;
+                }
+            }
+        } finally {
+            enqueue(pending, END, writerThread);
+            writerThread.join();
+            executor.shutdownNow();
+        }
+        if (writeError[0] != null) {
+            throw writeError[0];
+        }
+        return failures.get();
+    }
+
+    /**
+     * Waits for room in the queue, giving up if the writer has stopped because of an error.
+     */
+    private static boolean enqueue(BlockingQueue<Future<Output>> pending, Future<Output> future, Thread writerThread)
+            throws InterruptedException {
+        while (!pending.offer(future, 100, TimeUnit.MILLISECONDS)) {
+            if (!writerThread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void write(Future<Output> future, Writer writer, AtomicInteger failures)
+            throws IOException, InterruptedException {
+        Output output;
+        try {
+            output = future.get();
+        } catch (ExecutionException e) {
+            output = new Output(null, "Cannot render QR: " + e.getCause().getMessage());
+        }
+        if (output.error != null) {
+            failures.incrementAndGet();
+            System.err.println(output.error);
+        }
+        if (writer != null) {
+            if (output.content != null) {
+                writer.write(output.content);
+            }
+            writer.write('\n');
+        }
+    }
+
+    private Output render(Header header, String[] columns, int lineNumber, File directory)
+            throws IOException, WriterException {
+        ValidationResult result = build(header, columns);
+        if (!result.isValid()) {
+            return new Output(null, "Line " + lineNumber + ": " + result.getViolations().get(0).getMessage());
+        }
+        ThaiQRPromptPay qr = result.get();
+        switch (format) {
+            case "png":
+                String id = header.get(columns, header.id);
+                qr.draw(size, size, new File(directory, fileName(id != null ? id : String.valueOf(lineNumber)) + ".png"));
+                return new Output(null, null);
+            case "base64":
+                return new Output(qr.drawToBase64(size, size), null);
+            case "payload":
+            default:
+                return new Output(qr.generateContent(), null);
+        }
+    }
+
+    private ValidationResult build(Header header, String[] columns) {
+        ThaiQRPromptPay.Builder builder = new ThaiQRPromptPay.Builder().deferValidation();
+        ThaiQRPromptPay.Builder.SelectPromptPayTypeBuilder selectPromptPayTypeBuilder;
+        if (qrType.equals("bot")) {
+            selectPromptPayTypeBuilder = builder.bot();
+        } else if (qrType.equals("dynamic")) {
+            selectPromptPayTypeBuilder = builder.dynamicQR();
+        } else {
+            selectPromptPayTypeBuilder = builder.staticQR();
+        }
+        String amountText = header.get(columns, header.amount);
+        BigDecimal amount = null;
+        if (amountText != null) {
+            try {
+                amount = new BigDecimal(amountText);
+            } catch (NumberFormatException e) {
+                Violation violation = new Violation("Amount", ErrorCode.NOT_NUMERIC, "Amount must be a number.");
+                return new ValidationResult(Collections.singletonList(violation), null);
+            }
+        }
+        if (header.billerId >= 0) {
+            // Every row of a file with a billerId column is a bill payment, so a blank one fails as such
+            ThaiQRPromptPay.Builder.BillPaymentBuilderOptionalDetail billPayment = selectPromptPayTypeBuilder.billPayment()
+                    .billerId(header.get(columns, header.billerId))
+                    .ref1(header.get(columns, header.ref1));
+            String ref2 = header.get(columns, header.ref2);
+            String ref3 = header.get(columns, header.ref3);
+            if (ref2 != null) {
+                billPayment.ref2(ref2);
+            }
+            if (ref3 != null) {
+                billPayment.ref3(ref3);
+            }
+            if (amount != null) {
+                billPayment.amount(amount);
+            }
+            return billPayment.tryBuild();
+        }
+        ThaiQRPromptPay.Builder.CreditTransferBuilderIdentifier creditTransfer = selectPromptPayTypeBuilder.creditTransfer();
+        ThaiQRPromptPay.Builder.CreditTransferBuilderAmount creditTransferAmount;
+        if (header.get(columns, header.nationalId) != null) {
+            creditTransferAmount = creditTransfer.nationalId(header.get(columns, header.nationalId));
+        } else if (header.get(columns, header.eWalletId) != null) {
+            creditTransferAmount = creditTransfer.eWalletId(header.get(columns, header.eWalletId));
+        } else {
+            creditTransferAmount = creditTransfer.mobileNumber(header.get(columns, header.mobileNumber));
+        }
+        if (amount != null) {
+            return creditTransferAmount.amount(amount).tryBuild();
+        }
+        return creditTransferAmount.tryBuild();
+    }
+
+    /**
+     * Keeps an ID usable as a file name inside the output directory.
+     */
+    private static String fileName(String id) {
+        StringBuilder fileName = new StringBuilder(id.length());
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            boolean allowed = (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '-' || c == '_';
+            fileName.append(allowed ? c : '_');
+        }
+        return fileName.toString();
+    }
+
+    /**
+     * Splits one CSV/TSV line, supporting double-quoted fields with "" as an escaped quote.
+     */
+    static String[] split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields.toArray(new String[0]);
+    }
+
+    private static final class Output {
+        private final String content;
+        private final String error;
+
+        Output(String content, String error) {
+            this.content = content;
+            this.error = error;
+        }
+    }
+
+    private static final class Header {
+        private int id = -1;
+        private int billerId = -1;
+        private int ref1 = -1;
+        private int ref2 = -1;
+        private int ref3 = -1;
+        private int mobileNumber = -1;
+        private int nationalId = -1;
+        private int eWalletId = -1;
+        private int amount = -1;
+
+        Header(String[] names) {
+            for (int i = 0; i < names.length; i++) {
+                switch (names[i].toLowerCase(Locale.ROOT)) {
+                    case "id":
+                        id = i;
+                        break;
+                    case "billerid":
+                        billerId = i;
+                        break;
+                    case "ref1":
+                        ref1 = i;
+                        break;
+                    case "ref2":
+                        ref2 = i;
+                        break;
+                    case "ref3":
+                        ref3 = i;
+                        break;
+                    case "mobilenumber":
+                        mobileNumber = i;
+                        break;
+                    case "nationalid":
+                        nationalId = i;
+                        break;
+                    case "ewalletid":
+                        eWalletId = i;
+                        break;
+                    case "amount":
+                        amount = i;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Returns the value of the column, or null if the column is absent or empty in this row.
+         */
+        String get(String[] columns, int index) {
+            if (index < 0 || index >= columns.length || columns[index].isEmpty()) {
+                return null;
+            }
+            return columns[index];
+        }
+    }
+}
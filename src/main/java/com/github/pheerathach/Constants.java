@@ -1,7 +1,5 @@
 package com.github.pheerathach;
 
-import java.math.BigDecimal;
-
 class Constants {
 
     protected static final String PAYLOAD_FORMAT_INDICATOR = "01";
@@ -14,7 +12,9 @@ class Constants {
     protected static final String CREDIT_TRANSFER_ACQUIRER_ID = "A000000677010111";
     protected static final int BILL_PAYMENT_DATA_FIELD_ID = 30;
     protected static final String BILL_PAYMENT_DATA_ACQUIRER_ID = "A000000677010112";
-    protected static final BigDecimal oneHundred = new BigDecimal("100.00");
+    protected static final long NO_AMOUNT = -1L;
+    protected static final int MAX_AMOUNT_LENGTH = 13;
+    protected static final long MAX_AMOUNT_SATANG = 999_999_999_999L;
 
     private Constants() {
 
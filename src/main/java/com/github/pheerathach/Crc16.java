@@ -0,0 +1,95 @@
+package com.github.pheerathach;
+
+/**
+ * CRC-16/CCITT-FALSE (polynomial 0x1021, initial value 0xFFFF) as used by the EMVCo checksum field (tag 63).
+ * The running state is the int passed to and returned by {@code update}, so a checksum can be carried on from a
+ * known prefix, as {@link PromptPayTemplate} does from its pre-encoded head.
+ */
+final class Crc16 {
+
+    protected static final int INITIAL_VALUE = 0xFFFF;
+    private static final int POLYNOMIAL = 0x1021;
+    private static final int[] TABLE = new int[256];
+    private static final byte[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ POLYNOMIAL : crc << 1;
+            }
+            TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private Crc16() {
+
+    }
+
+    protected static int update(int crc, byte b) {
+        return ((crc << 8) ^ TABLE[((crc >>> 8) ^ b) & 0xFF]) & 0xFFFF;
+    }
+
+    protected static int update(int crc, byte[] buffer, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ buffer[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    protected static int update(int crc, CharSequence ascii, int start, int end) {
+        for (int i = start; i < end; i++) {
+            crc = ((crc << 8) ^ TABLE[((crc >>> 8) ^ ascii.charAt(i)) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * Writes the checksum as four uppercase hexadecimal ASCII digits.
+     *
+     * @return the position right after the last digit written.
+     */
+    protected static int writeHex(int crc, byte[] dst, int offset) {
+        dst[offset] = HEX_DIGITS[(crc >>> 12) & 0xF];
+        dst[offset + 1] = HEX_DIGITS[(crc >>> 8) & 0xF];
+        dst[offset + 2] = HEX_DIGITS[(crc >>> 4) & 0xF];
+        dst[offset + 3] = HEX_DIGITS[crc & 0xF];
+        return offset + 4;
+    }
+
+    /**
+     * Writes the checksum as four uppercase hexadecimal digits.
+     *
+     * @return the position right after the last digit written.
+     */
+    protected static int writeHex(int crc, char[] dst, int offset) {
+        dst[offset] = (char) HEX_DIGITS[(crc >>> 12) & 0xF];
+        dst[offset + 1] = (char) HEX_DIGITS[(crc >>> 8) & 0xF];
+        dst[offset + 2] = (char) HEX_DIGITS[(crc >>> 4) & 0xF];
+        dst[offset + 3] = (char) HEX_DIGITS[crc & 0xF];
+        return offset + 4;
+    }
+
+    /**
+     * Reads one digit of the checksum field, which EMVCo defines as uppercase hexadecimal.
+     *
+     * @return the value of the digit, or -1 if it is not one of 0-9 and A-F.
+     */
+    protected static int hexDigit(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    protected static String toHex(int crc) {
+        char[] hex = new char[4];
+        writeHex(crc, hex, 0);
+        return new String(hex);
+    }
+}
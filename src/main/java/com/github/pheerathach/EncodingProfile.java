@@ -0,0 +1,254 @@
+package com.github.pheerathach;
+
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.nio.charset.Charset;
+
+/**
+ * How the content of a QR is encoded into modules: error correction level, quiet zone, symbol version, character
+ * set and mask. {@link #DEFAULT} draws exactly what previous versions drew; pass another profile to
+ * {@link ThaiQRPromptPay.Builder#encodingProfile(EncodingProfile)} or to a draw method such as
+ * {@link ThaiQRPromptPay#drawToByteArray(int, int, EncodingProfile)}.
+ * <p>
+ * Instances are immutable and can be used as keys.
+ */
+public final class EncodingProfile {
+
+    /**
+     * Error correction L, a quiet zone of 4 modules, the smallest version fitting the content, no ECI header and the
+     * mask with the lowest penalty.
+     */
+    public static final EncodingProfile DEFAULT = new Builder().build();
+
+    static final int DEFAULT_MARGIN = 4;
+    static final int MIN_VERSION = 1;
+    static final int MAX_VERSION = 40;
+    static final int AUTOMATIC_MASK = -1;
+
+    /**
+     * How the mask, which breaks up patterns confusing to readers, is chosen among the eight of ISO/IEC 18004. Every
+     * mask decodes; a better one only makes the QR easier to read from a poor image.
+     */
+    public enum MaskSelection {
+        /**
+         * Score every mask on the four penalty rules of ISO/IEC 18004 and keep the lowest, as ZXing does.
+         */
+        PENALTY,
+        /**
+         * Score every mask on long runs of one colour and on the balance of dark and light modules only, skipping
+         * the 2x2 block and finder-like pattern rules. Meant for QRs shown on screens, where a near-optimal mask
+         * reads as well.
+         */
+        FAST
+    }
+
+    private final ErrorCorrectionLevel errorCorrection;
+    private final int margin;
+    private final int version;
+    private final int minVersion;
+    private final Charset charset;
+    private final MaskSelection maskSelection;
+    private final int maskPattern;
+
+    private EncodingProfile(Builder builder) {
+        this.errorCorrection = builder.errorCorrection;
+        this.margin = builder.margin;
+        this.version = builder.version;
+        this.minVersion = builder.minVersion;
+        this.charset = builder.charset;
+        this.maskSelection = builder.maskSelection;
+        this.maskPattern = builder.maskPattern;
+    }
+
+    public ErrorCorrectionLevel getErrorCorrection() {
+        return errorCorrection;
+    }
+
+    /**
+     * @return The least width of the quiet zone in modules.
+     */
+    public int getMargin() {
+        return margin;
+    }
+
+    /**
+     * @return The version every QR is encoded at, or 0 if it is chosen from the content.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The smallest version a QR is encoded at, or 0 if there is none.
+     */
+    public int getMinVersion() {
+        return minVersion;
+    }
+
+    /**
+     * @return The character set announced in an ECI header, or null for none.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public MaskSelection getMaskSelection() {
+        return maskSelection;
+    }
+
+    /**
+     * @return The mask every QR is encoded with, from 0 to 7, or -1 if it is chosen by {@link #getMaskSelection()}.
+     */
+    public int getMaskPattern() {
+        return maskPattern;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EncodingProfile)) {
+            return false;
+        }
+        EncodingProfile profile = (EncodingProfile) o;
+        return errorCorrection == profile.errorCorrection && margin == profile.margin && version == profile.version
+                && minVersion == profile.minVersion && maskSelection == profile.maskSelection
+                && maskPattern == profile.maskPattern
+                && (charset != null ? charset.equals(profile.charset) : profile.charset == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = errorCorrection.hashCode();
+        result = 31 * result + margin;
+        result = 31 * result + version;
+        result = 31 * result + minVersion;
+        result = 31 * result + maskSelection.hashCode();
+        result = 31 * result + maskPattern;
+        return 31 * result + (charset != null ? charset.hashCode() : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "EncodingProfile{errorCorrection=" + errorCorrection + ", margin=" + margin + ", version=" + version
+                + ", minVersion=" + minVersion + ", charset=" + charset + ", maskSelection=" + maskSelection
+                + ", maskPattern=" + maskPattern + "}";
+    }
+
+    public static class Builder {
+        private ErrorCorrectionLevel errorCorrection = ErrorCorrectionLevel.L;
+        private int margin = DEFAULT_MARGIN;
+        private int version;
+        private int minVersion;
+        private Charset charset;
+        private MaskSelection maskSelection = MaskSelection.PENALTY;
+        private int maskPattern = AUTOMATIC_MASK;
+
+        /**
+         * Specify error correction level, from L (7% of the modules may be lost) to H (30%)
+         * Default is L (smallest QR)
+         * @param errorCorrection Error correction level
+         * @return This builder.
+         */
+        public Builder errorCorrection(ErrorCorrectionLevel errorCorrection) {
+            if (errorCorrection == null) {
+                throw new IllegalArgumentException("Error correction level is required.");
+            }
+            this.errorCorrection = errorCorrection;
+            return this;
+        }
+
+        /**
+         * Specify the least width of the quiet zone around the QR in modules
+         * Default is 4, as required by ISO/IEC 18004
+         * @param margin Quiet zone in modules
+         * @return This builder.
+         */
+        public Builder margin(int margin) {
+            if (margin < 0) {
+                throw new IllegalArgumentException("Margin must not be negative.");
+            }
+            this.margin = margin;
+            return this;
+        }
+
+        /**
+         * Specify the version every QR is encoded at, so that every QR has the same number of modules
+         * Default is the smallest version fitting the content. Drawing content which does not fit throws
+         * WriterException.
+         * @param version Version from 1 to 40
+         * @return This builder.
+         */
+        public Builder version(int version) {
+            validateVersion(version);
+            this.version = version;
+            this.minVersion = 0;
+            return this;
+        }
+
+        /**
+         * Specify the smallest version a QR is encoded at; a larger version is used if the content does not fit
+         * Default is none
+         * @param minVersion Version from 1 to 40
+         * @return This builder.
+         */
+        public Builder minVersion(int minVersion) {
+            validateVersion(minVersion);
+            this.minVersion = minVersion;
+            this.version = 0;
+            return this;
+        }
+
+        /**
+         * Specify the character set announced in an ECI header ahead of the content
+         * Default is none, which readers take as ISO-8859-1. The header is only written when the content needs byte
+         * mode, e.g. for lower-case references, as other modes have no character set.
+         * @param charset Character set, or null for none
+         * @return This builder.
+         */
+        public Builder charset(Charset charset) {
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Specify how the mask is chosen
+         * Default is {@link MaskSelection#PENALTY}
+         * @param maskSelection Mask selection
+         * @return This builder.
+         */
+        public Builder maskSelection(MaskSelection maskSelection) {
+            if (maskSelection == null) {
+                throw new IllegalArgumentException("Mask selection is required.");
+            }
+            this.maskSelection = maskSelection;
+            this.maskPattern = AUTOMATIC_MASK;
+            return this;
+        }
+
+        /**
+         * Specify the mask every QR is encoded with, skipping mask selection altogether
+         * Default is none, the mask is chosen by {@link #maskSelection(MaskSelection)}
+         * @param maskPattern Mask from 0 to 7
+         * @return This builder.
+         */
+        public Builder maskPattern(int maskPattern) {
+            if (maskPattern < 0 || maskPattern > 7) {
+                throw new IllegalArgumentException("Mask pattern must be from 0 to 7.");
+            }
+            this.maskPattern = maskPattern;
+            return this;
+        }
+
+        public EncodingProfile build() {
+            return new EncodingProfile(this);
+        }
+
+        private static void validateVersion(int version) {
+            if (version < MIN_VERSION || version > MAX_VERSION) {
+                throw new IllegalArgumentException("Version must be from " + MIN_VERSION + " to " + MAX_VERSION + ".");
+            }
+        }
+    }
+}
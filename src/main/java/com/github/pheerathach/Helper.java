@@ -1,6 +1,13 @@
 package com.github.pheerathach;
 
+import com.github.pheerathach.ValidationResult.ErrorCode;
+import com.github.pheerathach.ValidationResult.Violation;
+
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.pheerathach.Constants.*;
 
 class Helper {
 
@@ -8,19 +15,54 @@ class Helper {
 
     }
 
-    // Special Thanks to thedayofcondor @ https://stackoverflow.com/questions/13209364/convert-c-crc16-to-java-crc16/13209435
     protected static String crc16(final byte[] buffer) {
-        int crc = 0xFFFF;
-        for (byte b : buffer) {
-            crc = ((crc >>> 8) | (crc << 8)) & 0xffff;
-            crc ^= (b & 0xff);
-            crc ^= ((crc & 0xff) >> 4);
-            crc ^= (crc << 12) & 0xffff;
-            crc ^= ((crc & 0xFF) << 5) & 0xffff;
+        return Crc16.toHex(crc16(buffer, 0, buffer.length));
+    }
+
+    protected static int crc16(final byte[] buffer, int offset, int length) {
+        return Crc16.update(Crc16.INITIAL_VALUE, buffer, offset, length);
+    }
+
+    protected static int crc16(final CharSequence ascii, int start, int end) {
+        if (ascii instanceof AsciiSequence) {
+            AsciiSequence bytes = (AsciiSequence) ascii;
+            return crc16(bytes.array(), bytes.arrayOffset() + start, end - start);
+        }
+        return Crc16.update(Crc16.INITIAL_VALUE, ascii, start, end);
+    }
+
+    protected static boolean isNumeric(CharSequence data) {
+        int length = data.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static boolean isAlphanumeric(CharSequence data) {
+        int length = data.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = data.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'A' || c > 'Z') && (c < 'a' || c > 'z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static void validateRequired(String name, Object data) {
+        if (data == null) {
+            throw new IllegalStateException(name + " is required.");
         }
-        crc &= 0xffff;
-        String result = Integer.toHexString(crc).toUpperCase();
-        return ("0000" + result).substring(result.length());
     }
 
     protected static void validateLength(String name, String data, int maxLength) {
@@ -30,19 +72,19 @@ class Helper {
     }
 
     protected static void validateNumeric(String name, String data) {
-        if (!data.matches("[0-9]+")) {
+        if (!isNumeric(data)) {
             throw new IllegalStateException(name + " must contain only numbers.");
         }
     }
 
     protected static void validateAlphanumeric(String name, String data) {
-        if (!data.matches("[A-Za-z0-9]+")) {
+        if (!isAlphanumeric(data)) {
             throw new IllegalStateException(name + " must contain only numbers and English characters.");
         }
     }
 
     protected static void validateAmount(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+        if (amount.signum() < 0) {
             throw new IllegalStateException("Amount must be a positive number.");
         }
         if (countDecimalPlace(amount) > 2) {
@@ -50,9 +92,88 @@ class Helper {
         }
     }
 
+    protected static void validateAmount(long satang) {
+        if (satang < 0) {
+            throw new IllegalStateException("Amount must be a positive number.");
+        }
+        if (satang > MAX_AMOUNT_SATANG) {
+            throw new IllegalStateException("Amount must not be more than " + MAX_AMOUNT_LENGTH + " char(s).");
+        }
+    }
+
+    /**
+     * Validates the amount and converts it to satang (1/100 of the currency unit).
+     */
+    protected static long toSatang(BigDecimal amount) {
+        validateAmount(amount);
+        if (amount.precision() - amount.scale() > MAX_AMOUNT_LENGTH - 3) {
+            throw new IllegalStateException("Amount must not be more than " + MAX_AMOUNT_LENGTH + " char(s).");
+        }
+        return amount.movePointRight(2).longValue();
+    }
+
     protected static int countDecimalPlace(BigDecimal bigDecimal) {
-        String string = bigDecimal.stripTrailingZeros().toPlainString();
-        int index = string.indexOf('.');
-        return index < 0 ? 0 : string.length() - index - 1;
+        return Math.max(bigDecimal.stripTrailingZeros().scale(), 0);
+    }
+
+    // The check* methods below collect violations instead of throwing, allocating the list only on the first one.
+
+    protected static List<Violation> addViolation(List<Violation> violations, String name, ErrorCode code, String message) {
+        if (violations == null) {
+            violations = new ArrayList<>(4);
+        }
+        violations.add(new Violation(name, code, message));
+        return violations;
+    }
+
+    protected static List<Violation> checkRequired(List<Violation> violations, String name, Object data) {
+        if (data == null) {
+            return addViolation(violations, name, ErrorCode.REQUIRED, name + " is required.");
+        }
+        return violations;
+    }
+
+    protected static List<Violation> checkLength(List<Violation> violations, String name, String data, int maxLength) {
+        if (data != null && data.length() > maxLength) {
+            return addViolation(violations, name, ErrorCode.TOO_LONG, name + " must not be more than " + maxLength + " char(s).");
+        }
+        return violations;
+    }
+
+    protected static List<Violation> checkNumeric(List<Violation> violations, String name, String data) {
+        if (data != null && !isNumeric(data)) {
+            return addViolation(violations, name, ErrorCode.NOT_NUMERIC, name + " must contain only numbers.");
+        }
+        return violations;
+    }
+
+    protected static List<Violation> checkAlphanumeric(List<Violation> violations, String name, String data) {
+        if (data != null && !isAlphanumeric(data)) {
+            return addViolation(violations, name, ErrorCode.NOT_ALPHANUMERIC, name + " must contain only numbers and English characters.");
+        }
+        return violations;
+    }
+
+    protected static List<Violation> checkAmount(List<Violation> violations, long satang) {
+        if (satang < 0) {
+            return addViolation(violations, "Amount", ErrorCode.NEGATIVE_AMOUNT, "Amount must be a positive number.");
+        }
+        if (satang > MAX_AMOUNT_SATANG) {
+            return addViolation(violations, "Amount", ErrorCode.TOO_LONG, "Amount must not be more than " + MAX_AMOUNT_LENGTH + " char(s).");
+        }
+        return violations;
+    }
+
+    protected static List<Violation> checkAmount(List<Violation> violations, BigDecimal amount) {
+        if (amount.signum() < 0) {
+            return addViolation(violations, "Amount", ErrorCode.NEGATIVE_AMOUNT, "Amount must be a positive number.");
+        }
+        if (countDecimalPlace(amount) > 2) {
+            return addViolation(violations, "Amount", ErrorCode.TOO_MANY_DECIMAL_PLACES, "Amount must be in two-digit decimal place format.");
+        }
+        if (amount.precision() - amount.scale() > MAX_AMOUNT_LENGTH - 3) {
+            return addViolation(violations, "Amount", ErrorCode.TOO_LONG, "Amount must not be more than " + MAX_AMOUNT_LENGTH + " char(s).");
+        }
+        return violations;
     }
 }
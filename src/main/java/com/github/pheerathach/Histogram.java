@@ -0,0 +1,39 @@
+package com.github.pheerathach;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts values in fixed buckets without locking. Bucket i holds either exactly the value i, or with power-of-two
+ * buckets the values below 2^i (and at least 2^(i-1)); the last bucket also holds everything larger.
+ */
+final class Histogram {
+    private final LongAdder[] buckets;
+    private final boolean powerOfTwo;
+
+    Histogram(int bucketCount, boolean powerOfTwo) {
+        this.powerOfTwo = powerOfTwo;
+        this.buckets = new LongAdder[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long value) {
+        int bucket = powerOfTwo ? 64 - Long.numberOfLeadingZeros(Math.max(0, value)) : (int) Math.max(0, Math.min(value, Integer.MAX_VALUE));
+        buckets[Math.min(bucket, buckets.length - 1)].increment();
+    }
+
+    long[] snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+    }
+}
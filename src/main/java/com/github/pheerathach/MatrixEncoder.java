@@ -0,0 +1,716 @@
+package com.github.pheerathach;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.common.CharacterSetECI;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.decoder.Version;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes content as QR modules, module for module as ZXing's Encoder does when every mask is scored on all four
+ * penalty rules (ZXing is the reference the tests check it against), but faster, and letting the mask be chosen more
+ * cheaply: see {@link EncodingProfile.MaskSelection}.
+ * <p>
+ * The payload of a PromptPay QR is ASCII, so {@link #encode(byte[], EncodingProfile, int)} takes its bytes as they
+ * are instead of a String to encode again. Whatever depends only on the version is built once and shared: the
+ * function patterns, the order of the data modules and the pattern of each mask. What depends on the content is
+ * written into buffers kept by each thread: the codewords, with Reed-Solomon error correction from lookup tables,
+ * and the modules, unmasked once, then masked eight times and scored, keeping the best. Only the bit-packed
+ * {@link QrMatrix} is allocated per QR. Kanji mode is not used: content ZXing would encode in it with the Shift_JIS
+ * character set is encoded as bytes.
+ */
+final class MatrixEncoder {
+
+    private static final int MODE_NUMERIC = 0;
+    private static final int MODE_ALPHANUMERIC = 1;
+    private static final int MODE_BYTE = 2;
+    private static final int[] MODE_BITS = {0x1, 0x2, 0x4};
+    private static final int MODE_ECI_BITS = 0x7;
+    private static final int[][] CHARACTER_COUNT_BITS = {{10, 12, 14}, {9, 11, 13}, {8, 16, 16}};
+    private static final String ALPHANUMERIC = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+    // The alphanumeric code of each ASCII byte, -1 if it has none
+    private static final int[] ALPHANUMERIC_CODES = new int[128];
+
+    private static final int FORMAT_INFO_POLY = 0x537;
+    private static final int FORMAT_INFO_MASK = 0x5412;
+    private static final int VERSION_INFO_POLY = 0x1f25;
+    private static final int[][] FORMAT_INFO_COORDINATES = {
+            {8, 0}, {8, 1}, {8, 2}, {8, 3}, {8, 4}, {8, 5}, {8, 7}, {8, 8},
+            {7, 8}, {5, 8}, {4, 8}, {3, 8}, {2, 8}, {1, 8}, {0, 8},
+    };
+    // The format information of each error correction level bits and mask, indexed by level bits << 3 | mask
+    private static final int[] FORMAT_INFO = new int[32];
+
+    private static final int N1 = 3;
+    private static final int N2 = 3;
+    private static final int N3 = 40;
+    private static final int N4 = 10;
+
+    private static final byte EMPTY = -1;
+
+    private static final Layout[] LAYOUTS = new Layout[EncodingProfile.MAX_VERSION + 1];
+
+    private static final ThreadLocal<MatrixEncoder> ENCODERS = new ThreadLocal<MatrixEncoder>() {
+        @Override
+        protected MatrixEncoder initialValue() {
+            return new MatrixEncoder();
+        }
+    };
+
+    static {
+        Arrays.fill(ALPHANUMERIC_CODES, -1);
+        for (int i = 0; i < ALPHANUMERIC.length(); i++) {
+            ALPHANUMERIC_CODES[ALPHANUMERIC.charAt(i)] = i;
+        }
+        for (int typeInfo = 0; typeInfo < FORMAT_INFO.length; typeInfo++) {
+            FORMAT_INFO[typeInfo] = (typeInfo << 10 | bchCode(typeInfo, FORMAT_INFO_POLY)) ^ FORMAT_INFO_MASK;
+        }
+    }
+
+    // Buffers grown to the largest QR this thread has encoded
+    private byte[] data = new byte[0];
+    private int numBits;
+    private byte[] ecBytes = new byte[0];
+    private byte[] codewords = new byte[0];
+    private byte[] modules = new byte[0];
+    private byte[] candidate = new byte[0];
+    private byte[] best = new byte[0];
+    private int[] columnRuns = new int[0];
+    private int[] columnColors = new int[0];
+    private int[] columnWindows = new int[0];
+
+    private MatrixEncoder() {
+
+    }
+
+    static QrMatrix encode(String content, EncodingProfile profile, int pngCompressionLevel) throws WriterException {
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) >= 0x80) {
+                // Neither numeric nor alphanumeric
+                byte[] bytes = content.getBytes(charset(profile));
+                return ENCODERS.get().encode(MODE_BYTE, bytes, profile, pngCompressionLevel);
+            }
+        }
+        return encode(content.getBytes(StandardCharsets.US_ASCII), profile, pngCompressionLevel);
+    }
+
+    /**
+     * Encodes ASCII content, such as the payload of {@link ThaiQRPromptPay}, from its bytes. The array is not modified.
+     */
+    static QrMatrix encode(byte[] content, EncodingProfile profile, int pngCompressionLevel) throws WriterException {
+        if (content.length == 0) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        int mode = chooseMode(content);
+        byte[] letters = content;
+        if (mode == MODE_BYTE && (!isAsciiCompatible(profile.getCharset()) || !isAscii(content))) {
+            // Encoded as ZXing would encode the String of the content
+            letters = new String(content, StandardCharsets.US_ASCII).getBytes(charset(profile));
+        }
+        return ENCODERS.get().encode(mode, letters, profile, pngCompressionLevel);
+    }
+
+    private QrMatrix encode(int mode, byte[] letters, EncodingProfile profile, int pngCompressionLevel)
+            throws WriterException {
+        ErrorCorrectionLevel ecLevel = profile.getErrorCorrection();
+        int numLetters = letters.length;
+        Charset charset = charset(profile);
+        CharacterSetECI eci = null;
+        if (mode == MODE_BYTE && !StandardCharsets.ISO_8859_1.equals(charset)) {
+            eci = CharacterSetECI.getCharacterSetECIByName(charset.name());
+        }
+        int headerBits = (eci != null ? 12 : 0) + 4;
+        int dataBits = dataBits(mode, numLetters);
+
+        Version version = chooseVersion(profile, ecLevel, mode, headerBits, dataBits);
+        if (numLetters >= 1 << characterCountBits(mode, version)) {
+            throw new WriterException(numLetters + " is bigger than " + ((1 << characterCountBits(mode, version)) - 1));
+        }
+        Version.ECBlocks ecBlocks = version.getECBlocksForLevel(ecLevel);
+        int numTotalBytes = version.getTotalCodewords();
+        int numDataBytes = numTotalBytes - ecBlocks.getTotalECCodewords();
+
+        if (data.length < numTotalBytes) {
+            data = new byte[numTotalBytes];
+            ecBytes = new byte[numTotalBytes];
+            codewords = new byte[numTotalBytes];
+        }
+        Arrays.fill(data, 0, numDataBytes, (byte) 0);
+        numBits = 0;
+        if (eci != null) {
+            appendBits(MODE_ECI_BITS, 4);
+            appendBits(eci.getValue(), 8);
+        }
+        appendBits(MODE_BITS[mode], 4);
+        appendBits(numLetters, characterCountBits(mode, version));
+        if (mode == MODE_BYTE) {
+            for (byte letter : letters) {
+                appendBits(letter & 0xFF, 8);
+            }
+        } else if (mode == MODE_ALPHANUMERIC) {
+            appendAlphanumeric(letters);
+        } else {
+            appendNumeric(letters);
+        }
+        terminate(numDataBytes);
+
+        interleaveWithECBytes(numTotalBytes, numDataBytes, ecBlocks.getNumBlocks());
+        return toMatrix(layout(version), numTotalBytes, ecLevel, profile, pngCompressionLevel);
+    }
+
+    private static Charset charset(EncodingProfile profile) {
+        return profile.getCharset() != null ? profile.getCharset() : StandardCharsets.ISO_8859_1;
+    }
+
+    /**
+     * Whether the charset encodes ASCII characters as their own bytes, with the ECI ZXing would use.
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        return charset == null || StandardCharsets.ISO_8859_1.equals(charset) || StandardCharsets.US_ASCII.equals(charset)
+                || StandardCharsets.UTF_8.equals(charset);
+    }
+
+    private static boolean isAscii(byte[] content) {
+        for (byte b : content) {
+            if (b < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int chooseMode(byte[] content) {
+        boolean hasNumeric = false;
+        boolean hasAlphanumeric = false;
+        for (byte b : content) {
+            if (b >= '0' && b <= '9') {
+                hasNumeric = true;
+            } else if (b >= 0 && ALPHANUMERIC_CODES[b] != -1) {
+                hasAlphanumeric = true;
+            } else {
+                return MODE_BYTE;
+            }
+        }
+        if (hasAlphanumeric) {
+            return MODE_ALPHANUMERIC;
+        }
+        return hasNumeric ? MODE_NUMERIC : MODE_BYTE;
+    }
+
+    private static int dataBits(int mode, int numLetters) {
+        switch (mode) {
+            case MODE_NUMERIC:
+                return numLetters / 3 * 10 + (numLetters % 3 == 2 ? 7 : numLetters % 3 == 1 ? 4 : 0);
+            case MODE_ALPHANUMERIC:
+                return numLetters / 2 * 11 + numLetters % 2 * 6;
+            default:
+                return numLetters * 8;
+        }
+    }
+
+    private static int characterCountBits(int mode, Version version) {
+        int number = version.getVersionNumber();
+        return CHARACTER_COUNT_BITS[mode][number <= 9 ? 0 : number <= 26 ? 1 : 2];
+    }
+
+    private static Version chooseVersion(EncodingProfile profile, ErrorCorrectionLevel ecLevel, int mode, int headerBits,
+                                         int dataBits) throws WriterException {
+        int requested = profile.getVersion() != 0 ? profile.getVersion() : profile.getMinVersion();
+        if (requested != 0) {
+            Version version = Version.getVersionForNumber(requested);
+            if (willFit(headerBits + characterCountBits(mode, version) + dataBits, version, ecLevel)) {
+                return version;
+            }
+            if (profile.getVersion() != 0) {
+                throw new WriterException("Data too big for requested version");
+            }
+        }
+        // Like ZXing, size the character count for version 1 first, then for the version that gives
+        Version provisional = smallestVersion(headerBits + characterCountBits(mode, Version.getVersionForNumber(1)) + dataBits, ecLevel);
+        return smallestVersion(headerBits + characterCountBits(mode, provisional) + dataBits, ecLevel);
+    }
+
+    private static Version smallestVersion(int numInputBits, ErrorCorrectionLevel ecLevel) throws WriterException {
+        for (int number = EncodingProfile.MIN_VERSION; number <= EncodingProfile.MAX_VERSION; number++) {
+            Version version = Version.getVersionForNumber(number);
+            if (willFit(numInputBits, version, ecLevel)) {
+                return version;
+            }
+        }
+        throw new WriterException("Data too big");
+    }
+
+    private static boolean willFit(int numInputBits, Version version, ErrorCorrectionLevel ecLevel) {
+        int numDataBytes = version.getTotalCodewords() - version.getECBlocksForLevel(ecLevel).getTotalECCodewords();
+        return numDataBytes >= (numInputBits + 7) / 8;
+    }
+
+    private void appendBits(int value, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            if ((value >>> i & 1) != 0) {
+                data[numBits >>> 3] |= 0x80 >>> (numBits & 7);
+            }
+            numBits++;
+        }
+    }
+
+    private void appendNumeric(byte[] letters) {
+        int length = letters.length;
+        int i = 0;
+        while (i < length) {
+            int num1 = letters[i] - '0';
+            if (i + 2 < length) {
+                appendBits(num1 * 100 + (letters[i + 1] - '0') * 10 + letters[i + 2] - '0', 10);
+                i += 3;
+            } else if (i + 1 < length) {
+                appendBits(num1 * 10 + letters[i + 1] - '0', 7);
+                i += 2;
+            } else {
+                appendBits(num1, 4);
+                i++;
+            }
+        }
+    }
+
+    private void appendAlphanumeric(byte[] letters) {
+        int length = letters.length;
+        int i = 0;
+        while (i < length) {
+            int code1 = ALPHANUMERIC_CODES[letters[i]];
+            if (i + 1 < length) {
+                appendBits(code1 * 45 + ALPHANUMERIC_CODES[letters[i + 1]], 11);
+                i += 2;
+            } else {
+                appendBits(code1, 6);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Appends the terminator, pads to a whole byte and fills the remaining data bytes with 0xEC and 0x11.
+     */
+    private void terminate(int numDataBytes) {
+        int capacity = numDataBytes * 8;
+        numBits = Math.min(numBits + 4, capacity);
+        numBits = (numBits + 7) & ~7;
+        for (int i = numBits >>> 3; i < numDataBytes; i++) {
+            data[i] = (byte) (((i - (numBits >>> 3)) & 1) == 0 ? 0xEC : 0x11);
+        }
+    }
+
+    /**
+     * Splits the data into blocks, computes the error correction bytes of each block and interleaves them all into
+     * the codewords.
+     */
+    private void interleaveWithECBytes(int numTotalBytes, int numDataBytes, int numRSBlocks) {
+        int numRsBlocksInGroup2 = numTotalBytes % numRSBlocks;
+        int numRsBlocksInGroup1 = numRSBlocks - numRsBlocksInGroup2;
+        int numDataBytesInGroup1 = numDataBytes / numRSBlocks;
+        int numEcBytesInBlock = numTotalBytes / numRSBlocks - numDataBytesInGroup1;
+
+        int offset = 0;
+        for (int block = 0; block < numRSBlocks; block++) {
+            int numDataBytesInBlock = block < numRsBlocksInGroup1 ? numDataBytesInGroup1 : numDataBytesInGroup1 + 1;
+            ReedSolomon.encode(data, offset, numDataBytesInBlock, ecBytes, block * numEcBytesInBlock, numEcBytesInBlock);
+            offset += numDataBytesInBlock;
+        }
+
+        int position = 0;
+        for (int i = 0; i < numDataBytesInGroup1; i++) {
+            for (int block = 0; block < numRSBlocks; block++) {
+                // Blocks of group 2 are one byte longer and come after those of group 1
+                codewords[position++] = data[block * numDataBytesInGroup1 + Math.max(0, block - numRsBlocksInGroup1) + i];
+            }
+        }
+        for (int block = numRsBlocksInGroup1; block < numRSBlocks; block++) {
+            codewords[position++] = data[block * numDataBytesInGroup1 + block - numRsBlocksInGroup1 + numDataBytesInGroup1];
+        }
+        for (int i = 0; i < numEcBytesInBlock; i++) {
+            for (int block = 0; block < numRSBlocks; block++) {
+                codewords[position++] = ecBytes[block * numEcBytesInBlock + i];
+            }
+        }
+    }
+
+    private QrMatrix toMatrix(Layout layout, int numTotalBytes, ErrorCorrectionLevel ecLevel, EncodingProfile profile,
+                              int pngCompressionLevel) {
+        int size = layout.size;
+        int numModules = size * size;
+        if (modules.length < numModules) {
+            modules = new byte[numModules];
+            candidate = new byte[numModules];
+            best = new byte[numModules];
+        }
+        // Data modules of the template are light, as are those left over after the codewords
+        System.arraycopy(layout.template, 0, modules, 0, numModules);
+        int[] dataCells = layout.dataCells;
+        int cell = 0;
+        for (int i = 0; i < numTotalBytes; i++) {
+            int codeword = codewords[i];
+            for (int bit = 7; bit >= 0; bit--) {
+                modules[dataCells[cell++]] = (byte) (codeword >>> bit & 1);
+            }
+        }
+
+        int maskPattern = profile.getMaskPattern();
+        if (maskPattern < 0) {
+            boolean allRules = profile.getMaskSelection() == EncodingProfile.MaskSelection.PENALTY;
+            int minPenalty = Integer.MAX_VALUE;
+            for (int mask = 0; mask < 8; mask++) {
+                applyMask(layout, ecLevel, mask, candidate);
+                int penalty = penalty(candidate, size, allRules);
+                if (penalty < minPenalty) {
+                    minPenalty = penalty;
+                    byte[] swap = best;
+                    best = candidate;
+                    candidate = swap;
+                }
+            }
+        } else {
+            applyMask(layout, ecLevel, maskPattern, best);
+        }
+
+        int rowWords = (size + 31) / 32;
+        int[] bits = new int[rowWords * size];
+        for (int y = 0; y < size; y++) {
+            int row = y * size;
+            int rowStart = y * rowWords;
+            for (int x = 0; x < size; x++) {
+                bits[rowStart + (x >>> 5)] |= best[row + x] << (x & 31);
+            }
+        }
+        return QrMatrix.of(version(size), ecLevel, size, profile.getMargin(), pngCompressionLevel, bits);
+    }
+
+    private static int version(int size) {
+        return (size - 17) / 4;
+    }
+
+    private void applyMask(Layout layout, ErrorCorrectionLevel ecLevel, int mask, byte[] masked) {
+        byte[] pattern = layout.masks[mask];
+        for (int i = 0; i < pattern.length; i++) {
+            masked[i] = (byte) (modules[i] ^ pattern[i]);
+        }
+        int formatInfo = FORMAT_INFO[ecLevel.getBits() << 3 | mask];
+        int[] formatCells = layout.formatCells;
+        for (int i = 0; i < 15; i++) {
+            // Least significant bit first
+            byte bit = (byte) (formatInfo >>> i & 1);
+            masked[formatCells[i]] = bit;
+            masked[formatCells[15 + i]] = bit;
+        }
+    }
+
+    private static Layout layout(Version version) {
+        int number = version.getVersionNumber();
+        Layout layout = LAYOUTS[number];
+        if (layout == null) {
+            // Threads racing here build equal layouts, and the final fields make any of them safe to share
+            layout = new Layout(version);
+            LAYOUTS[number] = layout;
+        }
+        return layout;
+    }
+
+    /**
+     * Places finder, separator, alignment and timing patterns, the dark module and version information, and reserves
+     * the format information, which depends on the mask.
+     */
+    private static void embedFunctionPatterns(byte[] modules, int size, Version version) {
+        embedFinderPattern(modules, size, 0, 0);
+        embedFinderPattern(modules, size, size - 7, 0);
+        embedFinderPattern(modules, size, 0, size - 7);
+        for (int i = 0; i < 8; i++) {
+            modules[7 * size + i] = 0;
+            modules[7 * size + size - 8 + i] = 0;
+            modules[(size - 8) * size + i] = 0;
+        }
+        for (int i = 0; i < 7; i++) {
+            modules[i * size + 7] = 0;
+            modules[i * size + size - 8] = 0;
+            modules[(size - 7 + i) * size + 7] = 0;
+        }
+        modules[(size - 8) * size + 8] = 1;
+
+        int[] centers = version.getAlignmentPatternCenters();
+        if (version.getVersionNumber() >= 2) {
+            for (int y : centers) {
+                for (int x : centers) {
+                    if (modules[y * size + x] == EMPTY) {
+                        embedAlignmentPattern(modules, size, x - 2, y - 2);
+                    }
+                }
+            }
+        }
+        for (int i = 8; i < size - 8; i++) {
+            byte bit = (byte) ((i + 1) % 2);
+            if (modules[6 * size + i] == EMPTY) {
+                modules[6 * size + i] = bit;
+            }
+            if (modules[i * size + 6] == EMPTY) {
+                modules[i * size + 6] = bit;
+            }
+        }
+
+        for (int i = 0; i < FORMAT_INFO_COORDINATES.length; i++) {
+            modules[FORMAT_INFO_COORDINATES[i][1] * size + FORMAT_INFO_COORDINATES[i][0]] = 0;
+            if (i < 8) {
+                modules[8 * size + size - i - 1] = 0;
+            } else {
+                modules[(size - 7 + (i - 8)) * size + 8] = 0;
+            }
+        }
+
+        if (version.getVersionNumber() >= 7) {
+            int versionInfo = version.getVersionNumber() << 12 | bchCode(version.getVersionNumber(), VERSION_INFO_POLY);
+            int bitIndex = 0;
+            for (int i = 0; i < 6; i++) {
+                for (int j = 0; j < 3; j++) {
+                    byte bit = (byte) (versionInfo >>> bitIndex++ & 1);
+                    modules[(size - 11 + j) * size + i] = bit;
+                    modules[i * size + size - 11 + j] = bit;
+                }
+            }
+        }
+    }
+
+    private static void embedFinderPattern(byte[] modules, int size, int xStart, int yStart) {
+        for (int y = 0; y < 7; y++) {
+            for (int x = 0; x < 7; x++) {
+                boolean ring = x == 0 || x == 6 || y == 0 || y == 6;
+                boolean center = x >= 2 && x <= 4 && y >= 2 && y <= 4;
+                modules[(yStart + y) * size + xStart + x] = (byte) (ring || center ? 1 : 0);
+            }
+        }
+    }
+
+    private static void embedAlignmentPattern(byte[] modules, int size, int xStart, int yStart) {
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 5; x++) {
+                boolean ring = x == 0 || x == 4 || y == 0 || y == 4;
+                modules[(yStart + y) * size + xStart + x] = (byte) (ring || x == 2 && y == 2 ? 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * The order of the data modules in the zigzag placement.
+     */
+    private static int[] dataCells(byte[] modules, int size) {
+        int numCells = 0;
+        for (byte module : modules) {
+            if (module == EMPTY) {
+                numCells++;
+            }
+        }
+        int[] dataCells = new int[numCells];
+        int cell = 0;
+        int direction = -1;
+        int x = size - 1;
+        int y = size - 1;
+        while (x > 0) {
+            if (x == 6) {
+                x -= 1;
+            }
+            while (y >= 0 && y < size) {
+                for (int i = 0; i < 2; i++) {
+                    int position = y * size + x - i;
+                    if (modules[position] == EMPTY) {
+                        dataCells[cell++] = position;
+                    }
+                }
+                y += direction;
+            }
+            direction = -direction;
+            y += direction;
+            x -= 2;
+        }
+        return dataCells;
+    }
+
+    static boolean isMasked(int mask, int x, int y) {
+        int intermediate;
+        int temp;
+        switch (mask) {
+            case 0:
+                intermediate = (y + x) & 0x1;
+                break;
+            case 1:
+                intermediate = y & 0x1;
+                break;
+            case 2:
+                intermediate = x % 3;
+                break;
+            case 3:
+                intermediate = (y + x) % 3;
+                break;
+            case 4:
+                intermediate = ((y / 2) + (x / 3)) & 0x1;
+                break;
+            case 5:
+                temp = y * x;
+                intermediate = (temp & 0x1) + (temp % 3);
+                break;
+            case 6:
+                temp = y * x;
+                intermediate = ((temp & 0x1) + (temp % 3)) & 0x1;
+                break;
+            case 7:
+                temp = y * x;
+                intermediate = ((temp % 3) + ((y + x) & 0x1)) & 0x1;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid mask pattern: " + mask);
+        }
+        return intermediate == 0;
+    }
+
+    private static int bchCode(int value, int poly) {
+        int msbSetInPoly = 32 - Integer.numberOfLeadingZeros(poly);
+        value <<= msbSetInPoly - 1;
+        while (32 - Integer.numberOfLeadingZeros(value) >= msbSetInPoly) {
+            value ^= poly << (32 - Integer.numberOfLeadingZeros(value) - msbSetInPoly);
+        }
+        return value;
+    }
+
+    /**
+     * Scores the four penalty rules of ISO/IEC 18004 as ZXing's MaskUtil does, or with only rules 1 and 4: runs of five
+     * or more modules of one colour, and the balance of dark and light modules. Skipping 2x2 blocks and finder-like
+     * patterns still keeps long runs and a lopsided mask away.
+     * <p>
+     * All rules are scored in one pass over the rows, keeping the state of every column, and finder-like patterns are
+     * matched on the last 15 modules of each row and column, packed in an int.
+     */
+    private int penalty(byte[] modules, int size, boolean allRules) {
+        if (columnRuns.length < size) {
+            columnRuns = new int[size];
+            columnColors = new int[size];
+            columnWindows = new int[size];
+        }
+        Arrays.fill(columnRuns, 0, size, 0);
+        Arrays.fill(columnColors, 0, size, -1);
+        Arrays.fill(columnWindows, 0, size, 0);
+        int runs = 0;
+        int blocks = 0;
+        int patterns = 0;
+        int numDarkCells = 0;
+        for (int y = 0; y < size; y++) {
+            int row = y * size;
+            int run = 0;
+            int color = -1;
+            int window = 0;
+            for (int x = 0; x < size; x++) {
+                int bit = modules[row + x];
+                numDarkCells += bit;
+                if (bit == color) {
+                    run++;
+                } else {
+                    runs += runPenalty(run);
+                    run = 1;
+                    color = bit;
+                }
+                if (bit == columnColors[x]) {
+                    columnRuns[x]++;
+                } else {
+                    runs += runPenalty(columnRuns[x]);
+                    columnRuns[x] = 1;
+                    columnColors[x] = bit;
+                }
+                if (allRules) {
+                    if (x > 0 && y > 0 && bit == modules[row + x - 1] && bit == modules[row - size + x]
+                            && bit == modules[row - size + x - 1]) {
+                        blocks++;
+                    }
+                    window = window << 1 | bit;
+                    patterns += finderLike(window);
+                    columnWindows[x] = columnWindows[x] << 1 | bit;
+                    patterns += finderLike(columnWindows[x]);
+                }
+            }
+            runs += runPenalty(run);
+            if (allRules) {
+                // Modules past the edge count as light
+                for (int i = 0; i < 4; i++) {
+                    window <<= 1;
+                    patterns += finderLike(window);
+                }
+            }
+        }
+        for (int x = 0; x < size; x++) {
+            runs += runPenalty(columnRuns[x]);
+            if (allRules) {
+                int window = columnWindows[x];
+                for (int i = 0; i < 4; i++) {
+                    window <<= 1;
+                    patterns += finderLike(window);
+                }
+            }
+        }
+        int numTotalCells = size * size;
+        int balance = Math.abs(numDarkCells * 2 - numTotalCells) * 10 / numTotalCells * N4;
+        return runs + N2 * blocks + N3 * patterns + balance;
+    }
+
+    private static int runPenalty(int run) {
+        return run >= 5 ? N1 + run - 5 : 0;
+    }
+
+    /**
+     * Whether the last modules, the latest in the lowest bit, end a dark, light, dark, dark, dark, light, dark pattern
+     * with four light modules before it, or four light modules after such a pattern not already counted for those
+     * before it. Modules before the edge count as light.
+     *
+     * @return 1 if a finder-like pattern ends here, else 0.
+     */
+    private static int finderLike(int window) {
+        int last = window & 0x7FF;
+        if (last == 0x5D) {
+            return 1;
+        }
+        return last == 0x5D0 && (window & 0x7800) != 0 ? 1 : 0;
+    }
+
+    /**
+     * What every QR of a version shares.
+     */
+    private static final class Layout {
+        private final int size;
+        // Function patterns and version information, with light data and format modules
+        private final byte[] template;
+        // The positions of the data modules, in the order the codeword bits are placed
+        private final int[] dataCells;
+        // The positions of the format information bits, the first copy then the second
+        private final int[] formatCells = new int[30];
+        // For each mask, 1 where a data module is flipped
+        private final byte[][] masks = new byte[8][];
+
+        private Layout(Version version) {
+            size = version.getDimensionForVersion();
+            template = new byte[size * size];
+            Arrays.fill(template, EMPTY);
+            embedFunctionPatterns(template, size, version);
+            dataCells = dataCells(template, size);
+            for (int position : dataCells) {
+                template[position] = 0;
+            }
+            for (int i = 0; i < 15; i++) {
+                formatCells[i] = FORMAT_INFO_COORDINATES[i][1] * size + FORMAT_INFO_COORDINATES[i][0];
+                formatCells[15 + i] = i < 8 ? 8 * size + size - i - 1 : (size - 7 + (i - 8)) * size + 8;
+            }
+            for (int mask = 0; mask < masks.length; mask++) {
+                byte[] pattern = new byte[size * size];
+                for (int position : dataCells) {
+                    if (isMasked(mask, position % size, position / size)) {
+                        pattern[position] = 1;
+                    }
+                }
+                masks[mask] = pattern;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.pheerathach;
+
+class PayloadWriter {
+
+    /**
+     * Two ASCII digits for every value from 00 to 99, used for both the ID and the length header of a field.
+     */
+    private static final byte[] TWO_DIGITS = new byte[200];
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            TWO_DIGITS[i * 2] = (byte) ('0' + i / 10);
+            TWO_DIGITS[i * 2 + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private PayloadWriter() {
+
+    }
+
+    /**
+     * Returns the number of bytes taken by a field with the given content length (ID + length + content).
+     */
+    protected static int fieldLength(int contentLength) {
+        return 4 + contentLength;
+    }
+
+    protected static int writeTwoDigits(byte[] dst, int offset, int value) {
+        if (value < 0 || value > 99) {
+            throw new IllegalStateException("Field ID and length must be between 0 and 99.");
+        }
+        dst[offset] = TWO_DIGITS[value * 2];
+        dst[offset + 1] = TWO_DIGITS[value * 2 + 1];
+        return offset + 2;
+    }
+
+    protected static int writeHeader(byte[] dst, int offset, int fieldId, int contentLength) {
+        offset = writeTwoDigits(dst, offset, fieldId);
+        return writeTwoDigits(dst, offset, contentLength);
+    }
+
+    protected static int writeField(byte[] dst, int offset, int fieldId, CharSequence content) {
+        offset = writeHeader(dst, offset, fieldId, content.length());
+        return writeAscii(dst, offset, content);
+    }
+
+    protected static int writeAscii(byte[] dst, int offset, CharSequence content) {
+        return writeAscii(dst, offset, content, 0, content.length());
+    }
+
+    protected static int writeAscii(byte[] dst, int offset, CharSequence content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            dst[offset++] = ascii(content.charAt(i));
+        }
+        return offset;
+    }
+
+    /**
+     * Fields only checked for their length may still hold other characters, which would corrupt the payload and its
+     * CRC if narrowed to a byte.
+     */
+    private static byte ascii(char c) {
+        if (c > 0x7F) {
+            throw new IllegalArgumentException("Content must be ASCII, found U+" + String.format("%04X", (int) c) + ".");
+        }
+        return (byte) c;
+    }
+
+    /**
+     * Returns the number of digits of a non-negative number.
+     */
+    protected static int decimalLength(long value) {
+        int length = 1;
+        while (value >= 10) {
+            value /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    protected static int writeDecimal(byte[] dst, int offset, long value) {
+        int end = offset + decimalLength(value);
+        int position = end;
+        while (value >= 100) {
+            int twoDigits = (int) (value % 100);
+            value /= 100;
+            dst[--position] = TWO_DIGITS[twoDigits * 2 + 1];
+            dst[--position] = TWO_DIGITS[twoDigits * 2];
+        }
+        if (value >= 10) {
+            dst[--position] = TWO_DIGITS[(int) value * 2 + 1];
+            dst[--position] = TWO_DIGITS[(int) value * 2];
+        } else {
+            dst[--position] = (byte) ('0' + value);
+        }
+        return end;
+    }
+
+    /**
+     * Returns the number of chars of an amount in satang rendered in two-digit decimal place format, e.g. 100.35
+     */
+    protected static int amountLength(long satang) {
+        return decimalLength(satang / 100) + 3;
+    }
+
+    protected static int writeAmount(byte[] dst, int offset, long satang) {
+        offset = writeDecimal(dst, offset, satang / 100);
+        dst[offset++] = '.';
+        return writeTwoDigits(dst, offset, (int) (satang % 100));
+    }
+
+    protected static int writeAscii(byte[] dst, int offset, char c) {
+        dst[offset] = ascii(c);
+        return offset + 1;
+    }
+}
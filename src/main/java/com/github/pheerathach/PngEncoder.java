@@ -0,0 +1,179 @@
+package com.github.pheerathach;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a {@link BitMatrix} as a 1-bit grayscale PNG without going through BufferedImage and ImageIO.
+ * Set modules are black, unset modules are white, like MatrixToImageWriter's default.
+ * <p>
+ * A QR scaled to pixels repeats every scanline for the height of a module, so a row equal to the previous one is
+ * written with the Up filter, which turns it into zeros that deflate to almost nothing.
+ * <p>
+ * An encoder keeps its Deflater and buffers between images and is not thread-safe; {@link #get(int)} hands out one
+ * per thread.
+ */
+final class PngEncoder {
+
+    protected static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    private static final int FILTER_NONE = 0;
+    private static final int FILTER_UP = 2;
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final ThreadLocal<PngEncoder> ENCODERS = new ThreadLocal<PngEncoder>() {
+        @Override
+        protected PngEncoder initialValue() {
+            return new PngEncoder();
+        }
+    };
+
+    private final Deflater deflater = new Deflater(DEFAULT_COMPRESSION_LEVEL);
+    private final CRC32 crc32 = new CRC32();
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private final byte[] header = new byte[8];
+    private BitArray bits;
+    private byte[] row = new byte[0];
+    private byte[] previousRow = new byte[0];
+    private byte[] filteredRow = new byte[0];
+    private int written;
+
+    private PngEncoder() {
+
+    }
+
+    /**
+     * Returns the encoder of the current thread set to the specified compression level.
+     *
+     * @param compressionLevel 0 (no compression) to 9 (best compression), or -1 for the Deflater default
+     */
+    protected static PngEncoder get(int compressionLevel) {
+        PngEncoder encoder = ENCODERS.get();
+        encoder.deflater.reset();
+        encoder.deflater.setLevel(compressionLevel);
+        return encoder;
+    }
+
+    protected static void validateCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("PNG compression level must be between -1 and 9.");
+        }
+    }
+
+    /**
+     * @return The number of bytes written.
+     */
+    protected int encode(BitMatrix matrix, OutputStream out) throws IOException {
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        int rowLength = (width + 7) / 8 + 1;
+        if (row.length < rowLength) {
+            row = new byte[rowLength];
+            previousRow = new byte[rowLength];
+            filteredRow = new byte[rowLength];
+        }
+
+        out.write(SIGNATURE);
+        written = SIGNATURE.length;
+        byte[] ihdr = new byte[13];
+        writeInt(ihdr, 0, width);
+        writeInt(ihdr, 4, height);
+        ihdr[8] = 1; // bit depth
+        ihdr[9] = 0; // color type: grayscale
+        writeChunk(out, IHDR, ihdr, 13);
+
+        int pending = 0;
+        for (int y = 0; y < height; y++) {
+            packRow(matrix, y, rowLength);
+            byte[] scanline;
+            if (y > 0 && isSameAsPreviousRow(rowLength)) {
+                Arrays.fill(filteredRow, 0, rowLength, (byte) 0);
+                filteredRow[0] = FILTER_UP;
+                scanline = filteredRow;
+            } else {
+                row[0] = FILTER_NONE;
+                scanline = row;
+            }
+            deflater.setInput(scanline, 0, rowLength);
+            while (!deflater.needsInput()) {
+                pending = deflate(out, pending);
+            }
+            byte[] swap = previousRow;
+            previousRow = row;
+            row = swap;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            pending = deflate(out, pending);
+        }
+        if (pending > 0) {
+            writeChunk(out, IDAT, chunk, pending);
+        }
+        writeChunk(out, IEND, chunk, 0);
+        return written;
+    }
+
+    /**
+     * Compares the pixels of this row only: the buffers may be longer from a wider image encoded before.
+     */
+    private boolean isSameAsPreviousRow(int rowLength) {
+        for (int i = 1; i < rowLength; i++) {
+            if (row[i] != previousRow[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Packs one pixel row into bits, most significant bit first, 1 being white.
+     */
+    private void packRow(BitMatrix matrix, int y, int rowLength) {
+        bits = matrix.getRow(y, bits);
+        int[] words = bits.getBitArray();
+        // BitArray holds pixels least significant bit first, PNG wants them most significant bit first
+        for (int i = 0; i < rowLength - 1; i++) {
+            int pixels = (words[i >>> 2] >>> ((i & 3) << 3)) & 0xFF;
+            row[1 + i] = (byte) ~(Integer.reverse(pixels) >>> 24);
+        }
+    }
+
+    private int deflate(OutputStream out, int pending) throws IOException {
+        pending += deflater.deflate(chunk, pending, CHUNK_SIZE - pending);
+        if (pending == CHUNK_SIZE) {
+            writeChunk(out, IDAT, chunk, pending);
+            return 0;
+        }
+        return pending;
+    }
+
+    private void writeChunk(OutputStream out, byte[] type, byte[] data, int length) throws IOException {
+        writeInt(header, 0, length);
+        System.arraycopy(type, 0, header, 4, 4);
+        out.write(header, 0, 8);
+        out.write(data, 0, length);
+        crc32.reset();
+        crc32.update(type, 0, 4);
+        crc32.update(data, 0, length);
+        writeInt(header, 0, (int) crc32.getValue());
+        out.write(header, 0, 4);
+        written += 12 + length;
+    }
+
+    private static void writeInt(byte[] dst, int offset, int value) {
+        dst[offset] = (byte) (value >>> 24);
+        dst[offset + 1] = (byte) (value >>> 16);
+        dst[offset + 2] = (byte) (value >>> 8);
+        dst[offset + 3] = (byte) value;
+    }
+}
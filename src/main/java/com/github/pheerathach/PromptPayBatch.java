@@ -0,0 +1,417 @@
+package com.github.pheerathach;
+
+import com.github.pheerathach.ValidationResult.Violation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.github.pheerathach.Constants.*;
+
+/**
+ * Generates Bill Payment QR contents for many rows given as parallel arrays (one array per column),
+ * writing all of them into a single contiguous buffer. Rows are split across a {@link ForkJoinPool}
+ * or a caller-supplied {@link Executor}, and invalid rows are reported in {@link Result#getFailures()}
+ * instead of being thrown.
+ * <p>
+ * Row {@code i} is generated in two passes: first every row is validated and measured, then the contents are
+ * written at their final offsets, so no row is copied twice.
+ */
+public final class PromptPayBatch {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final ThaiQRPromptPay.OutputType outputType;
+    private final String usageType;
+    private String currencyCode = DEFAULT_CURRENCY_CODE;
+    private String countryCode = DEFAULT_COUNTRY_CODE;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private PromptPayBatch(ThaiQRPromptPay.OutputType outputType, String usageType) {
+        this.outputType = outputType;
+        this.usageType = usageType;
+    }
+
+    public static PromptPayBatch staticQR() {
+        return new PromptPayBatch(ThaiQRPromptPay.OutputType.PROMPTPAY, STATIC_QR_CODE);
+    }
+
+    public static PromptPayBatch dynamicQR() {
+        return new PromptPayBatch(ThaiQRPromptPay.OutputType.PROMPTPAY, DYNAMIC_QR_CODE);
+    }
+
+    public static PromptPayBatch bot() {
+        return new PromptPayBatch(ThaiQRPromptPay.OutputType.BOT3, null);
+    }
+
+    /**
+     * Specify currency code
+     * Default is Thai Baht (764)
+     * @param currencyCode Currency Code
+     * @return This batch.
+     */
+    public PromptPayBatch currencyCode(String currencyCode) {
+        this.currencyCode = currencyCode;
+        return this;
+    }
+
+    /**
+     * Specify country code
+     * Default is Thailand (TH)
+     * @param countryCode Country Code
+     * @return This batch.
+     */
+    public PromptPayBatch countryCode(String countryCode) {
+        this.countryCode = countryCode;
+        return this;
+    }
+
+    /**
+     * Specify the number of rows handled by one task
+     * Default is 1024
+     * @param chunkSize Rows per task
+     * @return This batch.
+     */
+    public PromptPayBatch chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be a positive number.");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Generate the contents on the common {@link ForkJoinPool}
+     *
+     * @param billerIds    Biller ID of each row
+     * @param ref1s        Reference No. 1 of each row
+     * @param ref2s        Reference No. 2 of each row, the array or its elements may be null
+     * @param ref3s        Terminal ID or Reference 3 of each row, the array or its elements may be null
+     * @param amountSatang Transaction amount in satang of each row, the array may be null and its elements may be
+     *                     {@link ThaiQRPromptPay#NO_AMOUNT}
+     * @return The contents and failures of all rows.
+     */
+    public Result generate(String[] billerIds, String[] ref1s, String[] ref2s, String[] ref3s, long[] amountSatang) {
+        return generate(billerIds, ref1s, ref2s, ref3s, amountSatang, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate the contents on the specified {@link ForkJoinPool}
+     *
+     * @param billerIds    Biller ID of each row
+     * @param ref1s        Reference No. 1 of each row
+     * @param ref2s        Reference No. 2 of each row, the array or its elements may be null
+     * @param ref3s        Terminal ID or Reference 3 of each row, the array or its elements may be null
+     * @param amountSatang Transaction amount in satang of each row, the array may be null
+     * @param pool         the pool running the tasks
+     * @return The contents and failures of all rows.
+     */
+    public Result generate(String[] billerIds, String[] ref1s, String[] ref2s, String[] ref3s, long[] amountSatang,
+                           ForkJoinPool pool) {
+        Job job = new Job(billerIds, ref1s, ref2s, ref3s, amountSatang);
+        pool.invoke(new Task(job, 0, job.rows, true));
+        job.allocate();
+        pool.invoke(new Task(job, 0, job.rows, false));
+        return job.result();
+    }
+
+    /**
+     * Generate the contents on the specified {@link Executor}, one task per chunk of rows
+     *
+     * @param billerIds    Biller ID of each row
+     * @param ref1s        Reference No. 1 of each row
+     * @param ref2s        Reference No. 2 of each row, the array or its elements may be null
+     * @param ref3s        Terminal ID or Reference 3 of each row, the array or its elements may be null
+     * @param amountSatang Transaction amount in satang of each row, the array may be null
+     * @param executor     the executor running the tasks
+     * @return The contents and failures of all rows.
+     * @throws InterruptedException       if interrupted while waiting for the tasks.
+     * @throws RejectedExecutionException if the executor rejects a task, once the tasks it accepted are done.
+     */
+    public Result generate(String[] billerIds, String[] ref1s, String[] ref2s, String[] ref3s, long[] amountSatang,
+                           Executor executor) throws InterruptedException {
+        Job job = new Job(billerIds, ref1s, ref2s, ref3s, amountSatang);
+        runChunks(job, executor, true);
+        job.allocate();
+        runChunks(job, executor, false);
+        return job.result();
+    }
+
+    private void runChunks(final Job job, Executor executor, final boolean measure) throws InterruptedException {
+        int chunks = (job.rows + chunkSize - 1) / chunkSize;
+        final CountDownLatch latch = new CountDownLatch(chunks);
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        // Set when the caller gives up, so chunks that have not started yet leave the job alone
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        int submitted = 0;
+        try {
+            for (; submitted < chunks; submitted++) {
+                final int from = submitted * chunkSize;
+                final int to = Math.min(from + chunkSize, job.rows);
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            if (!cancelled.get()) {
+                                job.run(from, to, measure);
+                            }
+                        } catch (Throwable e) {
+                            error.compareAndSet(null, e);
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+            latch.await();
+        } catch (RejectedExecutionException e) {
+            cancelled.set(true);
+            for (int chunk = submitted; chunk < chunks; chunk++) {
+                latch.countDown();
+            }
+            awaitUninterruptibly(latch);
+            throw e;
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            throw e;
+        }
+        if (error.get() != null) {
+            throw new IllegalStateException("Batch generation failed.", error.get());
+        }
+    }
+
+    /**
+     * Waits for the chunks already submitted, which still write into the job, keeping the interrupt status.
+     */
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private PromptPayTemplate compile(String billerId, Violation[] violation) {
+        ThaiQRPromptPay.Builder builder = new ThaiQRPromptPay.Builder().deferValidation().currencyCode(currencyCode).countryCode(countryCode);
+        ThaiQRPromptPay.Builder.SelectPromptPayTypeBuilder selectPromptPayTypeBuilder;
+        if (outputType == ThaiQRPromptPay.OutputType.BOT3) {
+            selectPromptPayTypeBuilder = builder.bot();
+        } else if (STATIC_QR_CODE.equals(usageType)) {
+            selectPromptPayTypeBuilder = builder.staticQR();
+        } else {
+            selectPromptPayTypeBuilder = builder.dynamicQR();
+        }
+        ValidationResult result = selectPromptPayTypeBuilder.billPayment().billerId(billerId).ref1("0").tryBuild();
+        if (!result.isValid()) {
+            violation[0] = result.getViolations().get(0);
+            return null;
+        }
+        return result.get().compileTemplate();
+    }
+
+    /**
+     * The generated contents of a batch. The content of row {@code i} is
+     * {@code getBuffer()[getOffsets()[i] .. getOffsets()[i + 1])}, which is empty if the row failed.
+     */
+    public static final class Result {
+        private final byte[] buffer;
+        private final int[] offsets;
+        private final Violation[] failures;
+        private final int failureCount;
+
+        Result(byte[] buffer, int[] offsets, Violation[] failures, int failureCount) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.failures = failures;
+            this.failureCount = failureCount;
+        }
+
+        /**
+         * @return The ASCII contents of all rows, one after another.
+         */
+        public byte[] getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * @return The start of each row in the buffer, plus the end of the last row (length is rows + 1).
+         */
+        public int[] getOffsets() {
+            return offsets;
+        }
+
+        /**
+         * @return The first violation of each row, or null for rows generated successfully.
+         */
+        public Violation[] getFailures() {
+            return failures;
+        }
+
+        public int getFailureCount() {
+            return failureCount;
+        }
+
+        public int size() {
+            return failures.length;
+        }
+
+        public boolean isFailed(int row) {
+            return failures[row] != null;
+        }
+
+        public int length(int row) {
+            return offsets[row + 1] - offsets[row];
+        }
+
+        /**
+         * @param row index of the row
+         * @return The content of the row, or null if the row failed.
+         */
+        public String getContent(int row) {
+            if (failures[row] != null) {
+                return null;
+            }
+            return new String(buffer, offsets[row], length(row), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final class Job {
+        private final int rows;
+        private final String[] billerIds;
+        private final String[] ref1s;
+        private final String[] ref2s;
+        private final String[] ref3s;
+        private final long[] amountSatang;
+        private final PromptPayTemplate[] templates;
+        private final Violation[] failures;
+        private final int[] offsets;
+        // The template of each Biller ID, or the first violation if it does not compile
+        private final ConcurrentMap<String, Object> templateCache = new ConcurrentHashMap<>();
+        private byte[] buffer;
+        private int failureCount;
+
+        Job(String[] billerIds, String[] ref1s, String[] ref2s, String[] ref3s, long[] amountSatang) {
+            this.rows = billerIds.length;
+            checkColumn("Reference 1", ref1s, false);
+            checkColumn("Reference 2", ref2s, true);
+            checkColumn("Reference 3", ref3s, true);
+            if (amountSatang != null && amountSatang.length != rows) {
+                throw new IllegalArgumentException("Amount must have " + rows + " row(s).");
+            }
+            this.billerIds = billerIds;
+            this.ref1s = ref1s;
+            this.ref2s = ref2s;
+            this.ref3s = ref3s;
+            this.amountSatang = amountSatang;
+            this.templates = new PromptPayTemplate[rows];
+            this.failures = new Violation[rows];
+            this.offsets = new int[rows + 1];
+        }
+
+        private void checkColumn(String name, Object[] column, boolean optional) {
+            if (column == null ? !optional : column.length != rows) {
+                throw new IllegalArgumentException(name + " must have " + rows + " row(s).");
+            }
+        }
+
+        private PromptPayTemplate template(int row) {
+            String billerId = billerIds[row];
+            Object compiled = billerId != null ? templateCache.get(billerId) : null;
+            if (compiled == null) {
+                Violation[] violation = new Violation[1];
+                PromptPayTemplate template = compile(billerId, violation);
+                compiled = template != null ? template : violation[0];
+                if (billerId != null) {
+                    templateCache.putIfAbsent(billerId, compiled);
+                }
+            }
+            if (compiled instanceof Violation) {
+                failures[row] = (Violation) compiled;
+                return null;
+            }
+            return (PromptPayTemplate) compiled;
+        }
+
+        void run(int from, int to, boolean measure) {
+            for (int row = from; row < to; row++) {
+                String ref2 = ref2s != null ? ref2s[row] : null;
+                String ref3 = ref3s != null ? ref3s[row] : null;
+                long amount = amountSatang != null ? amountSatang[row] : NO_AMOUNT;
+                if (measure) {
+                    PromptPayTemplate template = template(row);
+                    if (template == null) {
+                        continue;
+                    }
+                    List<Violation> violations = template.collectViolations(amount, ref1s[row], ref2, ref3);
+                    if (violations != null) {
+                        failures[row] = violations.get(0);
+                        continue;
+                    }
+                    templates[row] = template;
+                    // Lengths are kept one slot ahead and turned into offsets by allocate()
+                    offsets[row + 1] = template.contentLength(amount, ref1s[row], ref2, ref3);
+                } else if (templates[row] != null) {
+                    templates[row].write(amount, ref1s[row], ref2, ref3, buffer, offsets[row]);
+                }
+            }
+        }
+
+        void allocate() {
+            long total = 0;
+            for (int row = 0; row < rows; row++) {
+                if (failures[row] != null) {
+                    failureCount++;
+                }
+                total += offsets[row + 1];
+                if (total > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Batch content must not be more than 2 GB, split the rows into smaller batches.");
+                }
+                offsets[row + 1] = (int) total;
+            }
+            buffer = new byte[(int) total];
+        }
+
+        Result result() {
+            return new Result(buffer, offsets, failures, failureCount);
+        }
+    }
+
+    private final class Task extends RecursiveAction {
+        private final Job job;
+        private final int from;
+        private final int to;
+        private final boolean measure;
+
+        Task(Job job, int from, int to, boolean measure) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+            this.measure = measure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                job.run(from, to, measure);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Task(job, from, middle, measure), new Task(job, middle, to, measure));
+        }
+    }
+}
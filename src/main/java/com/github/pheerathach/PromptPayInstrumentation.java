@@ -0,0 +1,29 @@
+package com.github.pheerathach;
+
+/**
+ * Holds the {@link PromptPayListener} notified by every {@link ThaiQRPromptPay}. With no listener installed each stage
+ * costs one extra field read and nothing is timed.
+ */
+public final class PromptPayInstrumentation {
+
+    static volatile PromptPayListener listener;
+
+    private PromptPayInstrumentation() {
+
+    }
+
+    /**
+     * Install the listener notified of every stage, replacing the previous one
+     * @param listener the listener, or null to stop instrumenting
+     */
+    public static void setListener(PromptPayListener listener) {
+        PromptPayInstrumentation.listener = listener;
+    }
+
+    /**
+     * @return The installed listener, or null if there is none.
+     */
+    public static PromptPayListener getListener() {
+        return listener;
+    }
+}
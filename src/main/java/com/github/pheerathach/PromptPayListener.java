@@ -0,0 +1,58 @@
+package com.github.pheerathach;
+
+/**
+ * Receives the timing and size of each stage of generating and drawing a QR, once installed with
+ * {@link PromptPayInstrumentation#setListener(PromptPayListener)}. Methods are called on the thread doing the work,
+ * so implementations must be thread safe and quick. {@link PromptPayMetrics} is the implementation provided.
+ */
+public interface PromptPayListener {
+
+    enum Stage {
+        VALIDATION, CONTENT, QR_ENCODE, IMAGE_WRITE
+    }
+
+    /**
+     * Called on the thread doing the work when a stage starts, before the matching {@code on...} method reports its
+     * end. Listeners that need the start of a stage rather than its length, such as JFR events, begin there.
+     * @param stage the stage starting
+     */
+    default void onStageStarted(Stage stage) {
+    }
+
+    /**
+     * Called when {@link ThaiQRPromptPay.Builder} or a static factory has validated the fields of a QR.
+     * @param nanos time taken by validation
+     */
+    default void onValidated(long nanos) {
+    }
+
+    /**
+     * Called when the content of a QR is encoded, once per instance since the content is kept.
+     * @param outputType    PROMPTPAY or BOT3
+     * @param payloadLength length of the content in characters
+     * @param nanos         time taken by encoding
+     */
+    default void onContentGenerated(ThaiQRPromptPay.OutputType outputType, int payloadLength, long nanos) {
+    }
+
+    /**
+     * Called when the content is encoded as a QR code and scaled to the requested size, or only encoded by
+     * {@link ThaiQRPromptPay#toMatrix()}, in which case the size is in modules including the quiet zone.
+     * @param version the QR version, from 1 (21 x 21 modules) to 40 (177 x 177 modules)
+     * @param width   the width of the image in pixels, which may be larger than requested
+     * @param height  the height of the image in pixels, which may be larger than requested
+     * @param nanos   time taken by the QR encoder
+     */
+    default void onQrEncoded(int version, int width, int height, long nanos) {
+    }
+
+    /**
+     * Called when the PNG image has been written.
+     * @param width      the width of the image in pixels
+     * @param height     the height of the image in pixels
+     * @param imageBytes size of the PNG image in bytes
+     * @param nanos      time taken to compress and write the image
+     */
+    default void onImageWritten(int width, int height, int imageBytes, long nanos) {
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.pheerathach;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link PromptPayListener} keeping a counter, total time and maximum time for each stage, plus histograms of
+ * payload length, QR version and image size. Recording is striped over {@link LongAdder}s, so threads drawing
+ * in parallel do not contend on a shared counter.
+ * <pre>
+ * PromptPayMetrics metrics = new PromptPayMetrics();
+ * PromptPayInstrumentation.setListener(metrics);
+ * metrics.registerMBean(); // optional, publishes com.github.pheerathach:type=PromptPayMetrics
+ * </pre>
+ */
+public final class PromptPayMetrics implements PromptPayListener, PromptPayMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.github.pheerathach:type=PromptPayMetrics";
+
+    private static final int MAX_QR_VERSION = 40;
+
+    private final Timer validation = new Timer();
+    private final Timer content = new Timer();
+    private final Timer qrEncode = new Timer();
+    private final Timer imageWrite = new Timer();
+    private final Histogram payloadLengths = new Histogram(12, true);
+    private final Histogram qrVersions = new Histogram(MAX_QR_VERSION + 1, false);
+    private final Histogram imageSizes = new Histogram(32, true);
+
+    @Override
+    public void onValidated(long nanos) {
+        validation.record(nanos);
+    }
+
+    @Override
+    public void onContentGenerated(ThaiQRPromptPay.OutputType outputType, int payloadLength, long nanos) {
+        content.record(nanos);
+        payloadLengths.record(payloadLength);
+    }
+
+    @Override
+    public void onQrEncoded(int version, int width, int height, long nanos) {
+        qrEncode.record(nanos);
+        qrVersions.record(version);
+    }
+
+    @Override
+    public void onImageWritten(int width, int height, int imageBytes, long nanos) {
+        imageWrite.record(nanos);
+        imageSizes.record(imageBytes);
+    }
+
+    /**
+     * Register these metrics with the platform MBean server as {@link #OBJECT_NAME}
+     * @throws IllegalStateException if metrics are already registered under that name.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalStateException("PromptPay metrics are already registered as " + OBJECT_NAME + ".", e);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Remove these metrics from the platform MBean server, if registered
+     */
+    public void unregisterMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (InstanceNotFoundException e) {
+            // not registered
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public long getValidationCount() {
+        return validation.count.sum();
+    }
+
+    @Override
+    public long getValidationTotalNanos() {
+        return validation.totalNanos.sum();
+    }
+
+    @Override
+    public long getValidationMaxNanos() {
+        return validation.maxNanos.get();
+    }
+
+    @Override
+    public long getContentCount() {
+        return content.count.sum();
+    }
+
+    @Override
+    public long getContentTotalNanos() {
+        return content.totalNanos.sum();
+    }
+
+    @Override
+    public long getContentMaxNanos() {
+        return content.maxNanos.get();
+    }
+
+    @Override
+    public long getQrEncodeCount() {
+        return qrEncode.count.sum();
+    }
+
+    @Override
+    public long getQrEncodeTotalNanos() {
+        return qrEncode.totalNanos.sum();
+    }
+
+    @Override
+    public long getQrEncodeMaxNanos() {
+        return qrEncode.maxNanos.get();
+    }
+
+    @Override
+    public long getImageWriteCount() {
+        return imageWrite.count.sum();
+    }
+
+    @Override
+    public long getImageWriteTotalNanos() {
+        return imageWrite.totalNanos.sum();
+    }
+
+    @Override
+    public long getImageWriteMaxNanos() {
+        return imageWrite.maxNanos.get();
+    }
+
+    @Override
+    public long[] getPayloadLengthHistogram() {
+        return payloadLengths.snapshot();
+    }
+
+    @Override
+    public long[] getQrVersionHistogram() {
+        return qrVersions.snapshot();
+    }
+
+    @Override
+    public long[] getImageSizeHistogram() {
+        return imageSizes.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        validation.reset();
+        content.reset();
+        qrEncode.reset();
+        imageWrite.reset();
+        payloadLengths.reset();
+        qrVersions.reset();
+        imageSizes.reset();
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.pheerathach;
+
+/**
+ * Management interface of {@link PromptPayMetrics}. Times are in nanoseconds; histograms are described on each getter.
+ */
+public interface PromptPayMetricsMXBean {
+
+    long getValidationCount();
+
+    long getValidationTotalNanos();
+
+    long getValidationMaxNanos();
+
+    long getContentCount();
+
+    long getContentTotalNanos();
+
+    long getContentMaxNanos();
+
+    long getQrEncodeCount();
+
+    long getQrEncodeTotalNanos();
+
+    long getQrEncodeMaxNanos();
+
+    long getImageWriteCount();
+
+    long getImageWriteTotalNanos();
+
+    long getImageWriteMaxNanos();
+
+    /**
+     * @return Count of payloads by length, element i counting lengths below 2^i and at least 2^(i-1).
+     */
+    long[] getPayloadLengthHistogram();
+
+    /**
+     * @return Count of QR codes by version, element i counting version i (element 0 is unused).
+     */
+    long[] getQrVersionHistogram();
+
+    /**
+     * @return Count of PNG images by size in bytes, element i counting sizes below 2^i and at least 2^(i-1).
+     */
+    long[] getImageSizeHistogram();
+
+    /**
+     * Set every counter, time and histogram back to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,395 @@
+package com.github.pheerathach;
+
+import java.math.BigDecimal;
+
+import static com.github.pheerathach.Constants.*;
+
+/**
+ * A PromptPay payload read back by {@link ThaiQRPromptPay#parse(CharSequence)}, in either the EMVCo layout or the
+ * BOT3 layout.
+ * <p>
+ * Parsing only records where each field is; the getters return slices of the parsed sequence, so fields that are
+ * never read are never copied. A payload parsed from a byte array reads the array on access, which must not be
+ * modified in the meantime.
+ */
+public final class PromptPayPayload {
+
+    public enum ProxyType {
+        MOBILE_NUMBER, NATIONAL_ID, E_WALLET_ID, BILLER_ID
+    }
+
+    private static final int CRC_FIELD_LENGTH = 8;
+
+    private final CharSequence source;
+    private ThaiQRPromptPay.OutputType outputType;
+    private ProxyType proxyType;
+    private int usageTypeStart = -1;
+    private int usageTypeEnd;
+    private int proxyStart = -1;
+    private int proxyEnd;
+    private int ref1Start = -1;
+    private int ref1End;
+    private int ref2Start = -1;
+    private int ref2End;
+    private int ref3Start = -1;
+    private int ref3End;
+    private int currencyCodeStart = -1;
+    private int currencyCodeEnd;
+    private int countryCodeStart = -1;
+    private int countryCodeEnd;
+    private long amount = NO_AMOUNT;
+
+    private PromptPayPayload(CharSequence source) {
+        this.source = source;
+    }
+
+    /**
+     * Parses the payload, verifying its CRC unless the caller already has.
+     *
+     * @throws IllegalStateException if the payload is malformed, fails its CRC or is not a PromptPay payload.
+     */
+    static PromptPayPayload parse(CharSequence source, boolean verifyCrc) {
+        PromptPayPayload payload = new PromptPayPayload(source);
+        if (source.length() > 0 && source.charAt(0) == '|') {
+            payload.parseBOT();
+        } else {
+            payload.parsePromptPayQR(verifyCrc);
+        }
+        return payload;
+    }
+
+    private void parseBOT() {
+        outputType = ThaiQRPromptPay.OutputType.BOT3;
+        proxyType = ProxyType.BILLER_ID;
+        int length = source.length();
+        proxyStart = 1;
+        proxyEnd = indexOfLineBreak(proxyStart);
+        ref1Start = proxyEnd + 1;
+        ref1End = indexOfLineBreak(ref1Start);
+        ref2Start = ref1End + 1;
+        ref2End = indexOfLineBreak(ref2Start);
+        if (ref2Start == ref2End) {
+            ref2Start = -1;
+        }
+        amount = parseDigits(ref2End + 1, length, "Amount");
+    }
+
+    private int indexOfLineBreak(int from) {
+        for (int i = from, length = source.length(); i < length; i++) {
+            if (source.charAt(i) == '\n') {
+                return i;
+            }
+        }
+        throw new IllegalStateException("BOT payload must have Biller ID, Reference 1, Reference 2 and Amount lines.");
+    }
+
+    private void parsePromptPayQR(boolean verifyCrc) {
+        outputType = ThaiQRPromptPay.OutputType.PROMPTPAY;
+        int crcStart = source.length() - CRC_FIELD_LENGTH;
+        if (crcStart < 0 || readTwoDigits(crcStart) != 63 || readTwoDigits(crcStart + 2) != 4) {
+            throw new IllegalStateException("Payload must end with CRC (tag 63).");
+        }
+        if (verifyCrc && parseHex(crcStart + 4) != Helper.crc16(source, 0, crcStart + 4)) {
+            throw new IllegalStateException("Payload CRC does not match its content.");
+        }
+
+        for (int offset = 0; offset < crcStart; ) {
+            int tag = readTwoDigits(offset);
+            int start = offset + 4;
+            int end = start + readTwoDigits(offset + 2);
+            if (end > crcStart) {
+                throw new IllegalStateException("Tag " + tag + " is longer than the payload.");
+            }
+            switch (tag) {
+                case 0:
+                    if (!regionEquals(start, end, PAYLOAD_FORMAT_INDICATOR)) {
+                        throw new IllegalStateException("Payload Format Indicator must be " + PAYLOAD_FORMAT_INDICATOR + ".");
+                    }
+                    break;
+                case 1:
+                    usageTypeStart = start;
+                    usageTypeEnd = end;
+                    break;
+                case CREDIT_TRANSFER_DATA_FIELD_ID:
+                case BILL_PAYMENT_DATA_FIELD_ID:
+                    parseMerchantInformation(tag, start, end);
+                    break;
+                case 53:
+                    currencyCodeStart = start;
+                    currencyCodeEnd = end;
+                    break;
+                case 54:
+                    amount = parseAmount(start, end);
+                    break;
+                case 58:
+                    countryCodeStart = start;
+                    countryCodeEnd = end;
+                    break;
+                case 62:
+                    parseAdditionalData(start, end);
+                    break;
+                default:
+                    // Other EMVCo fields, such as merchant category or name, carry nothing PromptPay generates
+                    break;
+            }
+            offset = end;
+        }
+        if (proxyType == null) {
+            throw new IllegalStateException("Payload must have PromptPay merchant information (tag 29 or 30).");
+        }
+    }
+
+    /**
+     * Reads tag 29 or 30, skipping it if its Application ID is not PromptPay's.
+     */
+    private void parseMerchantInformation(int tag, int from, int to) {
+        String acquirerId = tag == CREDIT_TRANSFER_DATA_FIELD_ID ? CREDIT_TRANSFER_ACQUIRER_ID : BILL_PAYMENT_DATA_ACQUIRER_ID;
+        if (from + 4 > to || readTwoDigits(from) != 0
+                || !regionEquals(from + 4, checkNestedEnd(tag, from + 4 + readTwoDigits(from + 2), to), acquirerId)) {
+            return;
+        }
+        for (int offset = from; offset < to; ) {
+            int subTag = readTwoDigits(offset);
+            int start = offset + 4;
+            int end = checkNestedEnd(tag, start + readTwoDigits(offset + 2), to);
+            if (tag == CREDIT_TRANSFER_DATA_FIELD_ID) {
+                switch (subTag) {
+                    case 1:
+                        setProxy(ProxyType.MOBILE_NUMBER, start, end);
+                        break;
+                    case 2:
+                        setProxy(ProxyType.NATIONAL_ID, start, end);
+                        break;
+                    case 3:
+                        setProxy(ProxyType.E_WALLET_ID, start, end);
+                        break;
+                    default:
+                        break;
+                }
+            } else {
+                switch (subTag) {
+                    case 1:
+                        setProxy(ProxyType.BILLER_ID, start, end);
+                        break;
+                    case 2:
+                        ref1Start = start;
+                        ref1End = end;
+                        break;
+                    case 3:
+                        ref2Start = start;
+                        ref2End = end;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            offset = end;
+        }
+    }
+
+    private void parseAdditionalData(int from, int to) {
+        for (int offset = from; offset < to; ) {
+            int subTag = readTwoDigits(offset);
+            int start = offset + 4;
+            int end = checkNestedEnd(62, start + readTwoDigits(offset + 2), to);
+            if (subTag == 7) {
+                ref3Start = start;
+                ref3End = end;
+            }
+            offset = end;
+        }
+    }
+
+    private static int checkNestedEnd(int tag, int end, int to) {
+        if (end > to) {
+            throw new IllegalStateException("Nested field of tag " + tag + " is longer than the tag.");
+        }
+        return end;
+    }
+
+    private boolean regionEquals(int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) != expected.charAt(i - start)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setProxy(ProxyType type, int start, int end) {
+        proxyType = type;
+        proxyStart = start;
+        proxyEnd = end;
+    }
+
+    private int readTwoDigits(int offset) {
+        if (offset + 2 > source.length()) {
+            throw new IllegalStateException("Payload ends in the middle of a field.");
+        }
+        int tens = source.charAt(offset) - '0';
+        int ones = source.charAt(offset + 1) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+            throw new IllegalStateException("Tag and length must be 2 digits at position " + offset + ".");
+        }
+        return tens * 10 + ones;
+    }
+
+    private int parseHex(int offset) {
+        int value = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            int digit = Crc16.hexDigit(source.charAt(i));
+            if (digit < 0) {
+                throw new IllegalStateException("CRC must be 4 uppercase hexadecimal digits.");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private long parseDigits(int start, int end, String field) {
+        if (start >= end || end - start > MAX_AMOUNT_LENGTH) {
+            throw new IllegalStateException(field + " must be 1 to " + MAX_AMOUNT_LENGTH + " digits.");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalStateException(field + " must be numeric.");
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private long parseAmount(int start, int end) {
+        int point = end;
+        for (int i = start; i < end; i++) {
+            if (source.charAt(i) == '.') {
+                point = i;
+                break;
+            }
+        }
+        long satang = parseDigits(start, point, "Amount") * 100;
+        if (point < end) {
+            int decimalPlaces = end - point - 1;
+            if (decimalPlaces > 2) {
+                throw new IllegalStateException("Amount must not have more than 2 decimal places.");
+            }
+            if (decimalPlaces > 0) {
+                long fraction = parseDigits(point + 1, end, "Amount");
+                satang += decimalPlaces == 1 ? fraction * 10 : fraction;
+            }
+        }
+        return satang;
+    }
+
+    private CharSequence slice(int start, int end) {
+        return start < 0 ? null : source.subSequence(start, end);
+    }
+
+    public ThaiQRPromptPay.OutputType getOutputType() {
+        return outputType;
+    }
+
+    /**
+     * @return true if the QR is for one payment only (Point of Initiation 12), false if it is static or BOT3.
+     */
+    public boolean isDynamic() {
+        return usageTypeStart >= 0 && regionEquals(usageTypeStart, usageTypeEnd, DYNAMIC_QR_CODE);
+    }
+
+    public ProxyType getProxyType() {
+        return proxyType;
+    }
+
+    /**
+     * @return The proxy as written in the payload, e.g. a mobile number in the form 0066812345678.
+     */
+    public CharSequence getProxy() {
+        return slice(proxyStart, proxyEnd);
+    }
+
+    /**
+     * @return The mobile number in local form, e.g. 0812345678, or null if the proxy is not a mobile number.
+     */
+    public String getMobileNumber() {
+        if (proxyType != ProxyType.MOBILE_NUMBER) {
+            return null;
+        }
+        int prefix = 2 + DEFAULT_COUNTRY_CODE_TEL.length();
+        if (proxyEnd - proxyStart > prefix && source.charAt(proxyStart) == '0' && source.charAt(proxyStart + 1) == '0') {
+            return "0" + source.subSequence(proxyStart + prefix, proxyEnd);
+        }
+        return source.subSequence(proxyStart, proxyEnd).toString();
+    }
+
+    public CharSequence getNationalId() {
+        return proxyType == ProxyType.NATIONAL_ID ? getProxy() : null;
+    }
+
+    public CharSequence getEWalletId() {
+        return proxyType == ProxyType.E_WALLET_ID ? getProxy() : null;
+    }
+
+    public CharSequence getBillerId() {
+        return proxyType == ProxyType.BILLER_ID ? getProxy() : null;
+    }
+
+    public CharSequence getRef1() {
+        return slice(ref1Start, ref1End);
+    }
+
+    public CharSequence getRef2() {
+        return slice(ref2Start, ref2End);
+    }
+
+    public CharSequence getRef3() {
+        return slice(ref3Start, ref3End);
+    }
+
+    /**
+     * @return The currency code, or null if absent or the payload is BOT3.
+     */
+    public CharSequence getCurrencyCode() {
+        return slice(currencyCodeStart, currencyCodeEnd);
+    }
+
+    /**
+     * @return The country code, or null if absent or the payload is BOT3.
+     */
+    public CharSequence getCountryCode() {
+        return slice(countryCodeStart, countryCodeEnd);
+    }
+
+    /**
+     * @return true if the payload carries an amount. BOT3 payloads always do, 0 meaning the payer specifies it.
+     */
+    public boolean hasAmount() {
+        return amount != NO_AMOUNT;
+    }
+
+    /**
+     * @return The amount in satang, or {@link ThaiQRPromptPay#NO_AMOUNT} if the payer specifies it.
+     */
+    public long getAmountSatang() {
+        return amount;
+    }
+
+    /**
+     * @return The amount in baht with 2 decimal places, or null if the payer specifies it.
+     */
+    public BigDecimal getAmount() {
+        return hasAmount() ? BigDecimal.valueOf(amount, 2) : null;
+    }
+
+    /**
+     * @return The parsed payload.
+     */
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.pheerathach;
+
+import com.github.pheerathach.ValidationResult.Violation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.github.pheerathach.Constants.*;
+import static com.github.pheerathach.Helper.*;
+import static com.github.pheerathach.PayloadWriter.*;
+
+/**
+ * A QR content layout compiled once from a fixed configuration (biller or proxy, usage type, currency and country),
+ * which only encodes the amount and references on each render.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class PromptPayTemplate {
+
+    /**
+     * Pass as the amount to render a QR without amount, letting the payer specify it. Same as
+     * {@link ThaiQRPromptPay#NO_AMOUNT}.
+     */
+    public static final long NO_AMOUNT = ThaiQRPromptPay.NO_AMOUNT;
+
+    private final ThaiQRPromptPay.OutputType outputType;
+    private final byte[] head;
+    private final int headCrc;
+    private final byte[] merchant;
+    private final byte[] currency;
+    private final byte[] country;
+
+    PromptPayTemplate(ThaiQRPromptPay.OutputType outputType, byte[] head, byte[] merchant, byte[] currency, byte[] country) {
+        this.outputType = outputType;
+        this.head = head;
+        this.headCrc = Helper.crc16(head, 0, head.length);
+        this.merchant = merchant;
+        this.currency = currency;
+        this.country = country;
+    }
+
+    /**
+     * Compile a template from a builder, ignoring the amount and references set on it
+     *
+     * @param builder the builder holding the fixed configuration
+     * @return The compiled template.
+     */
+    public static PromptPayTemplate compile(ThaiQRPromptPay.Builder.BuildReady builder) {
+        return compile(builder.build());
+    }
+
+    /**
+     * Compile a template from an existing QR, ignoring its amount and references
+     *
+     * @param prototype the QR holding the fixed configuration
+     * @return The compiled template.
+     */
+    public static PromptPayTemplate compile(ThaiQRPromptPay prototype) {
+        return prototype.compileTemplate();
+    }
+
+    /**
+     * Returns the number of bytes {@link #render(long, String, String, String, byte[], int)} would write
+     *
+     * @param amountSatang Transaction amount in satang, or {@link #NO_AMOUNT}
+     * @param ref1         Reference No. 1, must be null for Credit Transfer
+     * @param ref2         Reference No. 2, optional
+     * @param ref3         Terminal ID or Reference 3, optional
+     * @return The length of rendered content in bytes.
+     */
+    public int length(long amountSatang, String ref1, String ref2, String ref3) {
+        validate(amountSatang, ref1, ref2, ref3);
+        return contentLength(amountSatang, ref1, ref2, ref3);
+    }
+
+    /**
+     * Render the content with the specified amount and references
+     *
+     * @param amountSatang Transaction amount in satang, or {@link #NO_AMOUNT}
+     * @param ref1         Reference No. 1, must be null for Credit Transfer
+     * @param ref2         Reference No. 2, optional
+     * @param ref3         Terminal ID or Reference 3, optional
+     * @return The content of generated QR.
+     */
+    public String render(long amountSatang, String ref1, String ref2, String ref3) {
+        validate(amountSatang, ref1, ref2, ref3);
+        byte[] content = new byte[contentLength(amountSatang, ref1, ref2, ref3)];
+        write(amountSatang, ref1, ref2, ref3, content, 0);
+        return new String(content, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Render the content with the specified amount and references as ASCII bytes into the specified array
+     *
+     * @param amountSatang Transaction amount in satang, or {@link #NO_AMOUNT}
+     * @param ref1         Reference No. 1, must be null for Credit Transfer
+     * @param ref2         Reference No. 2, optional
+     * @param ref3         Terminal ID or Reference 3, optional
+     * @param dst          the array which the content would be written to
+     * @param offset       the position in the array to start writing at
+     * @return The number of bytes written.
+     * @throws IllegalStateException     if the amount or any reference is invalid.
+     * @throws IndexOutOfBoundsException if the array does not have enough room for the content.
+     */
+    public int render(long amountSatang, String ref1, String ref2, String ref3, byte[] dst, int offset) {
+        validate(amountSatang, ref1, ref2, ref3);
+        int length = contentLength(amountSatang, ref1, ref2, ref3);
+        if (offset < 0 || offset > dst.length || dst.length - offset < length) {
+            throw new IndexOutOfBoundsException("Content requires " + length + " byte(s) from offset " + offset + ".");
+        }
+        write(amountSatang, ref1, ref2, ref3, dst, offset);
+        return length;
+    }
+
+    public ThaiQRPromptPay.OutputType getOutputType() {
+        return outputType;
+    }
+
+    private boolean isBillPayment() {
+        return merchant != null || outputType == ThaiQRPromptPay.OutputType.BOT3;
+    }
+
+    private void validate(long amountSatang, String ref1, String ref2, String ref3) {
+        if (!isBillPayment() && (ref1 != null || ref2 != null || ref3 != null)) {
+            throw new IllegalStateException("References are only available for Bill Payment.");
+        }
+        List<Violation> violations = collectViolations(amountSatang, ref1, ref2, ref3);
+        if (violations != null) {
+            throw new IllegalStateException(violations.get(0).getMessage());
+        }
+    }
+
+    /**
+     * Checks the amount and references without throwing, returning null if all of them are valid.
+     */
+    List<Violation> collectViolations(long amountSatang, String ref1, String ref2, String ref3) {
+        List<Violation> violations = amountSatang != NO_AMOUNT ? checkAmount(null, amountSatang) : null;
+        if (!isBillPayment()) {
+            return violations;
+        }
+        violations = checkRequired(violations, "Reference 1", ref1);
+        violations = checkAlphanumeric(violations, "Reference 1", ref1);
+        violations = checkLength(violations, "Reference 1", ref1, 15);
+        violations = checkAlphanumeric(violations, "Reference 2", ref2);
+        violations = checkLength(violations, "Reference 2", ref2, 20);
+        violations = checkAlphanumeric(violations, "Reference 3", ref3);
+        return checkLength(violations, "Terminal ID/Reference 3", ref3, 26);
+    }
+
+    private int merchantLength(String ref1, String ref2) {
+        int length = merchant.length + fieldLength(ref1.length());
+        if (ref2 != null) {
+            length += fieldLength(ref2.length());
+        }
+        return length;
+    }
+
+    int contentLength(long amountSatang, String ref1, String ref2, String ref3) {
+        if (outputType == ThaiQRPromptPay.OutputType.BOT3) {
+            int length = head.length + ref1.length() + 2 + decimalLength(amountSatang != NO_AMOUNT ? amountSatang : 0);
+            return ref2 != null ? length + ref2.length() : length;
+        }
+        int length = head.length + country.length + fieldLength(4);
+        if (merchant != null) {
+            length += fieldLength(merchantLength(ref1, ref2)) + currency.length;
+        }
+        if (amountSatang != NO_AMOUNT) {
+            length += fieldLength(amountLength(amountSatang));
+        }
+        if (ref3 != null) {
+            length += fieldLength(fieldLength(ref3.length()));
+        }
+        return length;
+    }
+
+    int write(long amountSatang, String ref1, String ref2, String ref3, byte[] dst, int offset) {
+        System.arraycopy(head, 0, dst, offset, head.length);
+        offset += head.length;
+        if (outputType == ThaiQRPromptPay.OutputType.BOT3) {
+            offset = writeAscii(dst, offset, ref1);
+            offset = writeAscii(dst, offset, '\n');
+            if (ref2 != null) {
+                offset = writeAscii(dst, offset, ref2);
+            }
+            offset = writeAscii(dst, offset, '\n');
+            return writeDecimal(dst, offset, amountSatang != NO_AMOUNT ? amountSatang : 0);
+        }
+
+        int tail = offset;
+        if (merchant != null) {
+            offset = writeHeader(dst, offset, BILL_PAYMENT_DATA_FIELD_ID, merchantLength(ref1, ref2));
+            System.arraycopy(merchant, 0, dst, offset, merchant.length);
+            offset = writeField(dst, offset + merchant.length, 2, ref1);
+            if (ref2 != null) {
+                offset = writeField(dst, offset, 3, ref2);
+            }
+            System.arraycopy(currency, 0, dst, offset, currency.length);
+            offset += currency.length;
+        }
+        if (amountSatang != NO_AMOUNT) {
+            offset = writeHeader(dst, offset, 54, amountLength(amountSatang));
+            offset = writeAmount(dst, offset, amountSatang);
+        }
+        System.arraycopy(country, 0, dst, offset, country.length);
+        offset += country.length;
+        if (ref3 != null) {
+            offset = writeHeader(dst, offset, 62, fieldLength(ref3.length()));
+            offset = writeField(dst, offset, 7, ref3);
+        }
+        offset = writeHeader(dst, offset, 63, 4);
+        int crc = Crc16.update(headCrc, dst, tail, offset - tail);
+        return Crc16.writeHex(crc, dst, offset);
+    }
+}
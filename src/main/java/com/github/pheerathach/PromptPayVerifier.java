@@ -0,0 +1,303 @@
+package com.github.pheerathach;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Re-checks many stored payloads held one after another in a single buffer, such as a {@link PromptPayBatch.Result},
+ * for CRC integrity and structure. Rows are split across a {@link ForkJoinPool}, and failures are reported as a
+ * bitset with a reason for each failed row instead of being thrown.
+ * <p>
+ * Each byte of a CRC depends on the previous one, so a single payload cannot be checksummed faster than one table
+ * lookup after another. The verifier runs four payloads side by side in one loop, letting the CPU overlap
+ * their lookups.
+ */
+public final class PromptPayVerifier {
+
+    public enum Reason {
+        /**
+         * The payload does not end with tag 63 holding 4 uppercase hexadecimal digits.
+         */
+        MISSING_CRC,
+        /**
+         * The CRC in tag 63 does not match the content.
+         */
+        CRC_MISMATCH,
+        /**
+         * The CRC matches, but the payload is not a well-formed PromptPay payload.
+         */
+        MALFORMED,
+        /**
+         * The batch could not generate the row, so there is no payload; see {@link PromptPayBatch.Result#getFailures()}.
+         */
+        NOT_GENERATED
+    }
+
+    private static final int LANES = 4;
+    private static final int CRC_FIELD_LENGTH = 8;
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean checkStructure = true;
+
+    /**
+     * Specify the number of rows handled by one task
+     * Default is 4096
+     * @param chunkSize Rows per task
+     * @return This verifier.
+     */
+    public PromptPayVerifier chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be a positive number.");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Specify whether rows whose CRC matches are also parsed to check their structure
+     * Default is true, false checks the CRC only, which is about twice as fast
+     * @param checkStructure true to parse every row
+     * @return This verifier.
+     */
+    public PromptPayVerifier checkStructure(boolean checkStructure) {
+        this.checkStructure = checkStructure;
+        return this;
+    }
+
+    /**
+     * Verify the contents generated by a batch on the common {@link ForkJoinPool}. Rows the batch could not generate
+     * are reported as {@link Reason#NOT_GENERATED} without being checked.
+     *
+     * @param batch the generated batch
+     * @return The failures of all rows.
+     */
+    public Result verify(PromptPayBatch.Result batch) {
+        return verify(batch.getBuffer(), batch.getOffsets(), batch.getFailures(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Verify the payloads on the common {@link ForkJoinPool}
+     *
+     * @param buffer  the ASCII payloads, one after another
+     * @param offsets the start of each payload in the buffer, plus the end of the last payload (length is rows + 1)
+     * @return The failures of all rows.
+     */
+    public Result verify(byte[] buffer, int[] offsets) {
+        return verify(buffer, offsets, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Verify the payloads on the specified {@link ForkJoinPool}
+     *
+     * @param buffer  the ASCII payloads, one after another
+     * @param offsets the start of each payload in the buffer, plus the end of the last payload (length is rows + 1)
+     * @param pool    the pool running the tasks
+     * @return The failures of all rows.
+     */
+    public Result verify(byte[] buffer, int[] offsets, ForkJoinPool pool) {
+        return verify(buffer, offsets, null, pool);
+    }
+
+    private Result verify(byte[] buffer, int[] offsets, ValidationResult.Violation[] generationFailures,
+                          ForkJoinPool pool) {
+        if (offsets.length == 0) {
+            throw new IllegalArgumentException("Offsets must have rows + 1 element(s).");
+        }
+        int rows = offsets.length - 1;
+        Reason[] reasons = new Reason[rows];
+        if (generationFailures != null) {
+            // Rows with a reason already are left alone by the tasks
+            for (int row = 0; row < rows; row++) {
+                if (generationFailures[row] != null) {
+                    reasons[row] = Reason.NOT_GENERATED;
+                }
+            }
+        }
+        pool.invoke(new Task(buffer, offsets, reasons, 0, rows));
+        return new Result(reasons);
+    }
+
+    private void verify(byte[] buffer, int[] offsets, Reason[] reasons, int from, int to) {
+        int[] lanes = new int[LANES];
+        int pending = 0;
+        for (int row = from; row < to; row++) {
+            if (reasons[row] != null) {
+                continue;
+            }
+            int start = offsets[row];
+            int end = offsets[row + 1];
+            if (start < 0 || end > buffer.length || start > end) {
+                throw new IndexOutOfBoundsException("Row " + row + " is out of the buffer.");
+            }
+            if (end > start && buffer[start] == '|') {
+                // BOT3 payloads carry no CRC, so their structure is always checked
+                parse(buffer, row, start, end, reasons);
+            } else if (!hasCrcField(buffer, start, end)) {
+                reasons[row] = Reason.MISSING_CRC;
+            } else {
+                lanes[pending++] = row;
+                if (pending == LANES) {
+                    checkCrc(buffer, offsets, lanes, pending, reasons);
+                    pending = 0;
+                }
+            }
+        }
+        checkCrc(buffer, offsets, lanes, pending, reasons);
+    }
+
+    private static boolean hasCrcField(byte[] buffer, int start, int end) {
+        int crcStart = end - CRC_FIELD_LENGTH;
+        if (crcStart < start || buffer[crcStart] != '6' || buffer[crcStart + 1] != '3'
+                || buffer[crcStart + 2] != '0' || buffer[crcStart + 3] != '4') {
+            return false;
+        }
+        for (int i = crcStart + 4; i < end; i++) {
+            if (Crc16.hexDigit(buffer[i]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of bytes the CRC of a row covers, which is all of it but the 4 hexadecimal digits.
+     */
+    private static int crcLength(int[] offsets, int row) {
+        return offsets[row + 1] - offsets[row] - 4;
+    }
+
+    private static int readCrc(byte[] buffer, int end) {
+        int value = 0;
+        for (int i = end - 4; i < end; i++) {
+            value = (value << 4) | Crc16.hexDigit(buffer[i]);
+        }
+        return value;
+    }
+
+    /**
+     * Checksums up to four rows together: their common length in one interleaved loop, then the rest of each.
+     */
+    private void checkCrc(byte[] buffer, int[] offsets, int[] lanes, int count, Reason[] reasons) {
+        if (count == 0) {
+            return;
+        }
+        int[] crcs = {Crc16.INITIAL_VALUE, Crc16.INITIAL_VALUE, Crc16.INITIAL_VALUE, Crc16.INITIAL_VALUE};
+        int common = 0;
+        if (count == LANES) {
+            common = Integer.MAX_VALUE;
+            for (int lane = 0; lane < LANES; lane++) {
+                common = Math.min(common, crcLength(offsets, lanes[lane]));
+            }
+            int p0 = offsets[lanes[0]];
+            int p1 = offsets[lanes[1]];
+            int p2 = offsets[lanes[2]];
+            int p3 = offsets[lanes[3]];
+            int c0 = Crc16.INITIAL_VALUE;
+            int c1 = Crc16.INITIAL_VALUE;
+            int c2 = Crc16.INITIAL_VALUE;
+            int c3 = Crc16.INITIAL_VALUE;
+            for (int i = 0; i < common; i++) {
+                c0 = Crc16.update(c0, buffer[p0 + i]);
+                c1 = Crc16.update(c1, buffer[p1 + i]);
+                c2 = Crc16.update(c2, buffer[p2 + i]);
+                c3 = Crc16.update(c3, buffer[p3 + i]);
+            }
+            crcs[0] = c0;
+            crcs[1] = c1;
+            crcs[2] = c2;
+            crcs[3] = c3;
+        }
+        for (int lane = 0; lane < count; lane++) {
+            int row = lanes[lane];
+            int start = offsets[row];
+            int end = offsets[row + 1];
+            int crc = Crc16.update(crcs[lane], buffer, start + common, crcLength(offsets, row) - common);
+            if (crc != readCrc(buffer, end)) {
+                reasons[row] = Reason.CRC_MISMATCH;
+            } else if (checkStructure) {
+                parse(buffer, row, start, end, reasons);
+            }
+        }
+    }
+
+    private static void parse(byte[] buffer, int row, int start, int end, Reason[] reasons) {
+        try {
+            PromptPayPayload.parse(new AsciiSequence(buffer, start, end - start), false);
+        } catch (IllegalStateException e) {
+            reasons[row] = Reason.MALFORMED;
+        }
+    }
+
+    /**
+     * The outcome of verifying a buffer of payloads.
+     */
+    public static final class Result {
+        private final Reason[] reasons;
+        private final BitSet failures;
+
+        Result(Reason[] reasons) {
+            this.reasons = reasons;
+            this.failures = new BitSet(reasons.length);
+            for (int row = 0; row < reasons.length; row++) {
+                if (reasons[row] != null) {
+                    failures.set(row);
+                }
+            }
+        }
+
+        /**
+         * @return A copy of the set of failed rows.
+         */
+        public BitSet getFailures() {
+            return (BitSet) failures.clone();
+        }
+
+        /**
+         * @param row index of the row
+         * @return Why the row failed, or null if it passed.
+         */
+        public Reason getReason(int row) {
+            return reasons[row];
+        }
+
+        public int getFailureCount() {
+            return failures.cardinality();
+        }
+
+        public int size() {
+            return reasons.length;
+        }
+
+        public boolean isFailed(int row) {
+            return reasons[row] != null;
+        }
+    }
+
+    private final class Task extends RecursiveAction {
+        private final byte[] buffer;
+        private final int[] offsets;
+        private final Reason[] reasons;
+        private final int from;
+        private final int to;
+
+        Task(byte[] buffer, int[] offsets, Reason[] reasons, int from, int to) {
+            this.buffer = buffer;
+            this.offsets = offsets;
+            this.reasons = reasons;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                verify(buffer, offsets, reasons, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Task(buffer, offsets, reasons, from, middle), new Task(buffer, offsets, reasons, middle, to));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.github.pheerathach;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The modules of an encoded QR, obtained from {@link ThaiQRPromptPay#toMatrix()}, which draw the same images as
+ * the QR at any size without encoding its content again. Use one to draw several sizes or formats of the same QR,
+ * or cache it instead of the drawn images: the modules are packed one bit each, a few hundred bytes for a payment QR.
+ * <p>
+ * Modules are scaled by the largest whole number of pixels fitting the requested size and centred, with a quiet zone
+ * of at least {@link #getMargin()} modules. Instances are immutable and safe to share between threads.
+ */
+public final class QrMatrix {
+
+    private final int version;
+    private final ErrorCorrectionLevel errorCorrection;
+    private final int size;
+    private final int margin;
+    private final int pngCompressionLevel;
+    private final int rowWords;
+    // Row-major, 32 modules per int, the first module of a row in the lowest bit
+    private final int[] bits;
+
+    private QrMatrix(int version, ErrorCorrectionLevel errorCorrection, int size, int margin, int pngCompressionLevel,
+                     int[] bits) {
+        this.version = version;
+        this.errorCorrection = errorCorrection;
+        this.size = size;
+        this.margin = margin;
+        this.pngCompressionLevel = pngCompressionLevel;
+        this.rowWords = (size + 31) / 32;
+        this.bits = bits;
+    }
+
+    static QrMatrix of(int version, ErrorCorrectionLevel errorCorrection, int size, int margin, int pngCompressionLevel,
+                       int[] bits) {
+        return new QrMatrix(version, errorCorrection, size, margin, pngCompressionLevel, bits);
+    }
+
+    /**
+     * @return The QR version, from 1 (21 x 21 modules) to 40 (177 x 177 modules).
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public ErrorCorrectionLevel getErrorCorrection() {
+        return errorCorrection;
+    }
+
+    /**
+     * @return The number of modules on each side, without the quiet zone.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return The least width of the quiet zone in modules.
+     */
+    public int getMargin() {
+        return margin;
+    }
+
+    /**
+     * @param x the column of the module, from 0 to {@link #getSize()} - 1
+     * @param y the row of the module, from 0 to {@link #getSize()} - 1
+     * @return true if the module is dark.
+     */
+    public boolean isDark(int x, int y) {
+        if (x < 0 || y < 0 || x >= size || y >= size) {
+            throw new IndexOutOfBoundsException("Module " + x + ',' + y + " is outside of " + size + 'x' + size);
+        }
+        return (bits[y * rowWords + (x >>> 5)] >>> (x & 31) & 1) != 0;
+    }
+
+    /**
+     * Scale the modules to pixels, for writing in a format this class does not draw, e.g. with MatrixToImageWriter.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @return The pixels, set where dark, never smaller than the QR code and its quiet zone.
+     */
+    public BitMatrix toBitMatrix(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Requested dimensions are too small: " + width + 'x' + height);
+        }
+        int qrSize = size + margin * 2;
+        int outputWidth = Math.max(width, qrSize);
+        int outputHeight = Math.max(height, qrSize);
+        int multiple = Math.min(outputWidth / qrSize, outputHeight / qrSize);
+        int leftPadding = (outputWidth - size * multiple) / 2;
+        int topPadding = (outputHeight - size * multiple) / 2;
+
+        BitMatrix output = new BitMatrix(outputWidth, outputHeight);
+        BitArray row = new BitArray(outputWidth);
+        for (int y = 0, outputY = topPadding; y < size; y++, outputY += multiple) {
+            row.clear();
+            int rowStart = y * rowWords;
+            for (int x = 0, outputX = leftPadding; x < size; x++, outputX += multiple) {
+                if ((bits[rowStart + (x >>> 5)] >>> (x & 31) & 1) != 0) {
+                    row.setRange(outputX, outputX + multiple);
+                }
+            }
+            // Every pixel row of a module row is the same
+            for (int i = 0; i < multiple; i++) {
+                output.setRow(outputY + i, row);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * Draw the QR code image to the specified path with specified width and height.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param file   the path which QR code image would be written to (PNG format)
+     * @throws IOException if the path to write QR code is invalid.
+     */
+    public void draw(int width, int height, File file) throws IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+            drawTo(width, height, outputStream);
+        }
+    }
+
+    /**
+     * Draw the QR code image as PNG to the specified stream. The stream is not closed.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param out    the stream which QR code image would be written to
+     * @throws IOException if the stream could not be written.
+     */
+    public void drawTo(int width, int height, OutputStream out) throws IOException {
+        writePng(toBitMatrix(width, height), out);
+    }
+
+    /**
+     * Draw the QR code image to byte array.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @return the byte array of QR code image
+     * @throws IOException if the image could not be written.
+     */
+    public byte[] drawToByteArray(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        drawTo(width, height, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Draw the QR code image to Base64 string.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @return the base64 string of QR code image
+     * @throws IOException if the image could not be written.
+     */
+    public String drawToBase64(int width, int height) throws IOException {
+        byte[] imageData = drawToByteArray(width, height);
+        StringBuilder base64 = new StringBuilder(Base64Encoder.encodedLength(imageData.length));
+        Base64Encoder.encode(imageData, 0, imageData.length, base64);
+        return base64.toString();
+    }
+
+    /**
+     * Draw the QR code as an SVG document: one module per user unit including the quiet zone, scaled to the specified
+     * size by the viewBox, with every horizontal run of dark modules drawn as one rectangle of a single path.
+     *
+     * @param width  the width of the document in pixels
+     * @param height the height of the document in pixels
+     * @param out    the Appendable which SVG document would be appended to
+     * @throws IOException if the Appendable could not be written.
+     */
+    public void drawToSvg(int width, int height, Appendable out) throws IOException {
+        int qrSize = size + margin * 2;
+        out.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(Integer.toString(width))
+                .append("\" height=\"").append(Integer.toString(height))
+                .append("\" viewBox=\"0 0 ").append(Integer.toString(qrSize)).append(' ').append(Integer.toString(qrSize))
+                .append("\" shape-rendering=\"crispEdges\">")
+                .append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < size; y++) {
+            int x = 0;
+            while (x < size) {
+                if (!isDark(x, y)) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < size && isDark(x, y)) {
+                    x++;
+                }
+                int run = x - start;
+                out.append('M').append(Integer.toString(start + margin)).append(' ').append(Integer.toString(y + margin))
+                        .append('h').append(Integer.toString(run)).append("v1h-").append(Integer.toString(run)).append('z');
+            }
+        }
+        out.append("\"/></svg>");
+    }
+
+    /**
+     * Writes the pixels as PNG, reporting the write to the listener if there is one.
+     */
+    int writePng(BitMatrix bitMatrix, OutputStream out) throws IOException {
+        PromptPayListener listener = PromptPayInstrumentation.listener;
+        if (listener == null) {
+            return PngEncoder.get(pngCompressionLevel).encode(bitMatrix, out);
+        }
+        listener.onStageStarted(PromptPayListener.Stage.IMAGE_WRITE);
+        long start = System.nanoTime();
+        int imageBytes = PngEncoder.get(pngCompressionLevel).encode(bitMatrix, out);
+        listener.onImageWritten(bitMatrix.getWidth(), bitMatrix.getHeight(), imageBytes, System.nanoTime() - start);
+        return imageBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "QrMatrix{version=" + version + ", errorCorrection=" + errorCorrection + ", size=" + size
+                + ", margin=" + margin + "}";
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.pheerathach;
+
+import java.util.Arrays;
+
+/**
+ * Reed-Solomon error correction of QR codes over GF(256) with the primitive polynomial 0x11D, the same code as
+ * ZXing's ReedSolomonEncoder with GenericGF.QR_CODE_FIELD_256, but table driven: multiplication is a lookup in
+ * log/antilog tables, generator polynomials are built once per degree, and encoding writes into the caller's array
+ * without allocating.
+ */
+final class ReedSolomon {
+
+    private static final int PRIMITIVE = 0x11D;
+    // A QR block has at most 30 error correction codewords
+    private static final int MAX_DEGREE = 30;
+
+    // EXP[i] = 2^i, repeated so that EXP[LOG[a] + LOG[b]] needs no modulo
+    private static final int[] EXP = new int[512];
+    private static final int[] LOG = new int[256];
+    // Logs of the coefficients of each generator polynomial below its leading 1, highest degree first
+    private static final int[][] GENERATORS = new int[MAX_DEGREE + 1][];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x >= 256) {
+                x ^= PRIMITIVE;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+        for (int degree = 1; degree <= MAX_DEGREE; degree++) {
+            GENERATORS[degree] = buildGenerator(degree);
+        }
+    }
+
+    private ReedSolomon() {
+
+    }
+
+    /**
+     * (x - 2^0)(x - 2^1)...(x - 2^(degree - 1)), as the logs of its coefficients below the leading one.
+     */
+    private static int[] buildGenerator(int degree) {
+        int[] coefficients = new int[degree + 1];
+        coefficients[0] = 1;
+        for (int d = 0; d < degree; d++) {
+            for (int i = d + 1; i > 0; i--) {
+                coefficients[i] ^= multiply(coefficients[i - 1], EXP[d]);
+            }
+        }
+        int[] logs = new int[degree];
+        for (int i = 0; i < degree; i++) {
+            if (coefficients[i + 1] == 0) {
+                throw new IllegalStateException("Generator polynomial of degree " + degree + " has a zero coefficient.");
+            }
+            logs[i] = LOG[coefficients[i + 1]];
+        }
+        return logs;
+    }
+
+    static int multiply(int a, int b) {
+        return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+
+    /**
+     * Writes the error correction codewords of a block of data codewords.
+     *
+     * @param data     array holding the data codewords
+     * @param offset   position of the block in {@code data}
+     * @param length   number of data codewords in the block
+     * @param ec       array receiving the error correction codewords
+     * @param ecOffset position to write them at in {@code ec}
+     * @param numEc    number of error correction codewords, from 1 to 30
+     */
+    static void encode(byte[] data, int offset, int length, byte[] ec, int ecOffset, int numEc) {
+        if (numEc < 1 || numEc > MAX_DEGREE) {
+            throw new IllegalArgumentException("Number of error correction codewords must be from 1 to " + MAX_DEGREE + ".");
+        }
+        int[] generator = GENERATORS[numEc];
+        int last = ecOffset + numEc - 1;
+        Arrays.fill(ec, ecOffset, last + 1, (byte) 0);
+        // Long division by the generator, keeping only the remainder
+        for (int i = offset; i < offset + length; i++) {
+            int factor = (data[i] ^ ec[ecOffset]) & 0xFF;
+            System.arraycopy(ec, ecOffset + 1, ec, ecOffset, numEc - 1);
+            ec[last] = 0;
+            if (factor != 0) {
+                int logFactor = LOG[factor];
+                for (int j = 0; j < numEc; j++) {
+                    ec[ecOffset + j] ^= EXP[generator[j] + logFactor];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.github.pheerathach;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded cache of drawn QR images, keyed by the generated content, the encoding profile, the image size and the
+ * image format.
+ * When the total size of cached images goes over the limit, the least recently used images are evicted.
+ * <p>
+ * One cache can be shared by any number of ThaiQRPromptPay instances and threads; pass it to
+ * {@link ThaiQRPromptPay.Builder#renderCache(RenderCache)}.
+ */
+public final class RenderCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxBytes the maximum total size of cached images in bytes
+     */
+    public RenderCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached image, or null if it has not been drawn or was evicted. The array must not be modified.
+     */
+    synchronized byte[] get(String content, EncodingProfile profile, int width, int height, int pngCompressionLevel) {
+        byte[] image = images.get(new Key(content, profile, width, height, pngCompressionLevel));
+        if (image != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return image;
+    }
+
+    synchronized void put(String content, EncodingProfile profile, int width, int height, int pngCompressionLevel,
+                          byte[] image) {
+        if (image.length > maxBytes) {
+            return;
+        }
+        byte[] previous = images.put(new Key(content, profile, width, height, pngCompressionLevel), image);
+        bytes += image.length - (previous != null ? previous.length : 0);
+        Iterator<byte[]> eldest = images.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().length;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Removes all cached images, keeping the statistics.
+     */
+    public synchronized void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return The number of cached images.
+     */
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * @return The total size of cached images in bytes.
+     */
+    public synchronized long getByteSize() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The number of draws served from the cache.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of draws which had to encode the image.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of images evicted to stay within the size limit.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RenderCache{size=" + images.size() + ", bytes=" + bytes + "/" + maxBytes + ", hits=" + hitCount
+                + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    private static final class Key {
+        private final String content;
+        private final EncodingProfile profile;
+        private final int width;
+        private final int height;
+        private final int pngCompressionLevel;
+
+        private Key(String content, EncodingProfile profile, int width, int height, int pngCompressionLevel) {
+            this.content = content;
+            this.profile = profile;
+            this.width = width;
+            this.height = height;
+            this.pngCompressionLevel = pngCompressionLevel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return width == key.width && height == key.height && pngCompressionLevel == key.pngCompressionLevel
+                    && content.equals(key.content) && profile.equals(key.profile);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = content.hashCode();
+            result = 31 * result + profile.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + height;
+            return 31 * result + pngCompressionLevel;
+        }
+    }
+}
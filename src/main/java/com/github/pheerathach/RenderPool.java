@@ -0,0 +1,81 @@
+package com.github.pheerathach;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools running the asynchronous draw methods of {@link ThaiQRPromptPay}, such as
+ * {@link ThaiQRPromptPay#drawToByteArrayAsync(int, int)}.
+ * <p>
+ * Drawing is CPU bound, so a pool has one thread per core and a bounded queue. When the queue is full a draw is not
+ * queued and its future completes exceptionally with {@link RejectedExecutionException} at once, letting an
+ * overloaded server shed load instead of answering every request late.
+ */
+public final class RenderPool {
+
+    private static final int QUEUE_PER_THREAD = 64;
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private RenderPool() {
+
+    }
+
+    /**
+     * Returns the shared pool, created on first use with a thread per available processor and 64 queued draws per
+     * thread. Its threads are daemon threads named promptpay-render-N-M and stop after a minute without work.
+     *
+     * @return The shared pool.
+     */
+    public static Executor getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Create a pool like the shared one with the specified bounds
+     *
+     * @param threads       number of threads
+     * @param queueCapacity number of draws waiting for a thread before further ones are rejected
+     * @return The new pool, to be shut down by the caller.
+     */
+    public static ThreadPoolExecutor create(int threads, final int queueCapacity) {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Threads and queue capacity must be positive numbers.");
+        }
+        final int poolNumber = POOL_NUMBER.incrementAndGet();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "promptpay-render-" + poolNumber + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+                throw new RejectedExecutionException(executor.isShutdown()
+                        ? "Render pool is shut down."
+                        : "Render pool is overloaded, " + queueCapacity + " draw(s) are already waiting.");
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class DefaultHolder {
+        private static final ThreadPoolExecutor INSTANCE;
+
+        static {
+            int threads = Runtime.getRuntime().availableProcessors();
+            INSTANCE = create(threads, QUEUE_PER_THREAD * threads);
+        }
+    }
+}
@@ -1,150 +1,538 @@
 package com.github.pheerathach;
 
-import com.google.zxing.BarcodeFormat;
+import com.github.pheerathach.ValidationResult.Violation;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
-import org.apache.commons.codec.binary.Base64;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.github.pheerathach.Constants.*;
 import static com.github.pheerathach.Helper.*;
+import static com.github.pheerathach.PayloadWriter.*;
 
+/**
+ * A PromptPay QR built by {@link Builder}. Instances are immutable and safe to share between threads; the content is
+ * encoded on first use and kept for later calls.
+ */
 public class ThaiQRPromptPay {
-    private static final DecimalFormat MONEY_FORMAT = new DecimalFormat("0.00");
 
-    private final Integer paymentField;
+    /**
+     * Pass as the amount to the static factories to generate a QR without amount, letting the payer specify it.
+     */
+    public static final long NO_AMOUNT = Constants.NO_AMOUNT;
+
+    private final int paymentField;
     private final String usageType;
     private final String acquirerId;
-    private final BigDecimal amount;
+    private final long amount;
     private final String currencyCode;
     private final String countryCode;
-    private String billerId;
-    private String mobileNumber;
-    private String nationalId;
-    private String eWalletId;
-    private String ref1;
-    private String ref2;
-    private String ref3;
-    private OutputType outputType;
-
-    private ThaiQRPromptPay(Builder builder) {
-        if (builder.selectPromptPayTypeBuilder.selectPromptPayType instanceof Builder.SelectPromptPayTypeBuilder.CreditTransferBuilder) {
-            this.paymentField = CREDIT_TRANSFER_DATA_FIELD_ID;
-            this.acquirerId = CREDIT_TRANSFER_ACQUIRER_ID;
-            Builder.SelectPromptPayTypeBuilder.CreditTransferBuilder creditTransferBuilder = (Builder.SelectPromptPayTypeBuilder.CreditTransferBuilder) builder.selectPromptPayTypeBuilder.selectPromptPayType;
-            this.mobileNumber = creditTransferBuilder.mobileNumber;
-            this.nationalId = creditTransferBuilder.nationalId;
-            this.eWalletId = creditTransferBuilder.eWalletId;
-            this.amount = creditTransferBuilder.amount;
-            this.outputType = OutputType.PROMPTPAY;
-        } else {
-            this.paymentField = BILL_PAYMENT_DATA_FIELD_ID;
-            this.acquirerId = BILL_PAYMENT_DATA_ACQUIRER_ID;
-            Builder.SelectPromptPayTypeBuilder.BillPaymentBuilder billPaymentBuilder = (Builder.SelectPromptPayTypeBuilder.BillPaymentBuilder) builder.selectPromptPayTypeBuilder.selectPromptPayType;
-            this.billerId = billPaymentBuilder.billerId;
-            this.ref1 = billPaymentBuilder.ref1;
-            this.ref2 = billPaymentBuilder.ref2;
-            this.ref3 = billPaymentBuilder.ref3;
-            this.amount = billPaymentBuilder.amount;
-            this.outputType = builder.outputType;
+    private final String billerId;
+    private final String mobileNumber;
+    private final String nationalId;
+    private final String eWalletId;
+    private final String ref1;
+    private final String ref2;
+    private final String ref3;
+    private final OutputType outputType;
+    private final int pngCompressionLevel;
+    private final EncodingProfile encodingProfile;
+    private final RenderCache renderCache;
+    // Encoded on first use; racing threads encode the same bytes and the volatile write publishes a filled array
+    private volatile byte[] encodedContent;
+    private volatile String content;
+
+    private ThaiQRPromptPay(int paymentField, String usageType, OutputType outputType, String billerId, String ref1,
+                            String ref2, String ref3, String mobileNumber, String nationalId, String eWalletId, long amount,
+                            String currencyCode, String countryCode, int pngCompressionLevel,
+                            EncodingProfile encodingProfile, RenderCache renderCache) {
+        this.paymentField = paymentField;
+        this.acquirerId = paymentField == CREDIT_TRANSFER_DATA_FIELD_ID ? CREDIT_TRANSFER_ACQUIRER_ID : BILL_PAYMENT_DATA_ACQUIRER_ID;
+        this.usageType = usageType;
+        this.outputType = outputType;
+        this.billerId = billerId;
+        this.ref1 = ref1;
+        this.ref2 = ref2;
+        this.ref3 = ref3;
+        this.mobileNumber = toMobileNumberProxy(mobileNumber);
+        this.nationalId = nationalId;
+        this.eWalletId = eWalletId;
+        this.amount = amount;
+        this.currencyCode = currencyCode;
+        this.countryCode = countryCode;
+        this.pngCompressionLevel = pngCompressionLevel;
+        this.encodingProfile = encodingProfile;
+        this.renderCache = renderCache;
+    }
+
+    private static ThaiQRPromptPay fromBuilder(Builder builder) {
+        Builder.SelectPromptPayType selectPromptPayType = builder.selectPromptPayTypeBuilder.selectPromptPayType;
+        if (selectPromptPayType instanceof Builder.SelectPromptPayTypeBuilder.CreditTransferBuilder) {
+            Builder.SelectPromptPayTypeBuilder.CreditTransferBuilder creditTransferBuilder = (Builder.SelectPromptPayTypeBuilder.CreditTransferBuilder) selectPromptPayType;
+            return new ThaiQRPromptPay(CREDIT_TRANSFER_DATA_FIELD_ID, builder.usageType, OutputType.PROMPTPAY, null, null,
+                    null, null, creditTransferBuilder.mobileNumber, creditTransferBuilder.nationalId,
+                    creditTransferBuilder.eWalletId, creditTransferBuilder.satang(), builder.currencyCode,
+                    builder.countryCode, builder.pngCompressionLevel, builder.encodingProfile, builder.renderCache);
+        }
+        Builder.SelectPromptPayTypeBuilder.BillPaymentBuilder billPaymentBuilder = (Builder.SelectPromptPayTypeBuilder.BillPaymentBuilder) selectPromptPayType;
+        return new ThaiQRPromptPay(BILL_PAYMENT_DATA_FIELD_ID, builder.usageType, builder.outputType,
+                billPaymentBuilder.billerId, billPaymentBuilder.ref1, billPaymentBuilder.ref2, billPaymentBuilder.ref3,
+                null, null, null, billPaymentBuilder.satang(), builder.currencyCode, builder.countryCode,
+                builder.pngCompressionLevel, builder.encodingProfile, builder.renderCache);
+    }
+
+    /**
+     * Construct a Bill Payment PromptPay QR in Thai Baht without going through {@link Builder}
+     *
+     * @param billerId Tax ID (10 or 13 digits) + Suffix 2 digits
+     * @param ref1     Reference No. 1
+     * @param ref2     Reference No. 2, or null
+     * @param ref3     Terminal ID or Reference 3, or null
+     * @param satang   Transaction amount in satang, or {@link #NO_AMOUNT} to let the payer specify it
+     * @param dynamic  true for a QR used only once, false for a static QR
+     * @return Returns an instance of ThaiQRPromptPay.
+     * @throws IllegalStateException with the same message as {@link Builder} if any field is invalid.
+     */
+    public static ThaiQRPromptPay billPayment(String billerId, String ref1, String ref2, String ref3, long satang, boolean dynamic) {
+        long start = validationStart();
+        validateRequired("Biller ID", billerId);
+        validateNumeric("Biller ID", billerId);
+        validateLength("Biller ID", billerId, 15);
+        validateRequired("Reference 1", ref1);
+        validateAlphanumeric("Reference 1", ref1);
+        validateLength("Reference 1", ref1, 15);
+        if (ref2 != null) {
+            validateAlphanumeric("Reference 2", ref2);
+            validateLength("Reference 2", ref2, 20);
         }
-        this.usageType = builder.usageType;
-        this.currencyCode = builder.currencyCode;
-        this.countryCode = builder.countryCode;
+        if (ref3 != null) {
+            validateAlphanumeric("Reference 3", ref3);
+            validateLength("Terminal ID/Reference 3", ref3, 26);
+        }
+        return creditTransferOrBillPayment(BILL_PAYMENT_DATA_FIELD_ID, billerId, ref1, ref2, ref3, null, null, null, satang, dynamic, start);
+    }
+
+    /**
+     * Construct a Credit Transfer PromptPay QR to a mobile number in Thai Baht without going through {@link Builder}
+     *
+     * @param mobileNumber Mobile number, e.g. 0812345678
+     * @param satang       Transaction amount in satang, or {@link #NO_AMOUNT} to let the payer specify it
+     * @param dynamic      true for a QR used only once, false for a static QR
+     * @return Returns an instance of ThaiQRPromptPay.
+     * @throws IllegalStateException with the same message as {@link Builder} if any field is invalid.
+     */
+    public static ThaiQRPromptPay creditTransferMobile(String mobileNumber, long satang, boolean dynamic) {
+        long start = validationStart();
+        validateRequired("Mobile Number", mobileNumber);
+        validateNumeric("Mobile Number", mobileNumber);
+        validateLength("Mobile Number", mobileNumber, 10);
+        return creditTransferOrBillPayment(CREDIT_TRANSFER_DATA_FIELD_ID, null, null, null, null, mobileNumber, null, null, satang, dynamic, start);
+    }
+
+    /**
+     * Construct a Credit Transfer PromptPay QR to a National ID or Tax ID in Thai Baht without going through {@link Builder}
+     *
+     * @param nationalId Thai National ID or Tax ID
+     * @param satang     Transaction amount in satang, or {@link #NO_AMOUNT} to let the payer specify it
+     * @param dynamic    true for a QR used only once, false for a static QR
+     * @return Returns an instance of ThaiQRPromptPay.
+     * @throws IllegalStateException with the same message as {@link Builder} if any field is invalid.
+     */
+    public static ThaiQRPromptPay creditTransferNationalId(String nationalId, long satang, boolean dynamic) {
+        long start = validationStart();
+        validateRequired("National ID/Tax ID", nationalId);
+        validateNumeric("National ID/Tax ID", nationalId);
+        validateLength("National ID/Tax ID", nationalId, 13);
+        return creditTransferOrBillPayment(CREDIT_TRANSFER_DATA_FIELD_ID, null, null, null, null, null, nationalId, null, satang, dynamic, start);
+    }
+
+    /**
+     * Construct a Credit Transfer PromptPay QR to an E-Wallet ID in Thai Baht without going through {@link Builder}
+     *
+     * @param eWalletId E-Wallet ID
+     * @param satang    Transaction amount in satang, or {@link #NO_AMOUNT} to let the payer specify it
+     * @param dynamic   true for a QR used only once, false for a static QR
+     * @return Returns an instance of ThaiQRPromptPay.
+     * @throws IllegalStateException with the same message as {@link Builder} if any field is invalid.
+     */
+    public static ThaiQRPromptPay creditTransferEWallet(String eWalletId, long satang, boolean dynamic) {
+        long start = validationStart();
+        validateRequired("E-Wallet ID", eWalletId);
+        validateNumeric("E-Wallet ID", eWalletId);
+        validateLength("E-Wallet ID", eWalletId, 15);
+        return creditTransferOrBillPayment(CREDIT_TRANSFER_DATA_FIELD_ID, null, null, null, null, null, null, eWalletId, satang, dynamic, start);
+    }
+
+    /**
+     * Returns the time validation starts at, or 0 if there is no listener to report it to.
+     */
+    private static long validationStart() {
+        PromptPayListener listener = PromptPayInstrumentation.listener;
+        if (listener == null) {
+            return 0L;
+        }
+        listener.onStageStarted(PromptPayListener.Stage.VALIDATION);
+        return System.nanoTime();
+    }
+
+    private static ThaiQRPromptPay creditTransferOrBillPayment(int paymentField, String billerId, String ref1, String ref2,
+                                                               String ref3, String mobileNumber, String nationalId,
+                                                               String eWalletId, long satang, boolean dynamic,
+                                                               long validationStart) {
+        if (satang != NO_AMOUNT) {
+            validateAmount(satang);
+        }
+        PromptPayListener listener = PromptPayInstrumentation.listener;
+        if (listener != null && validationStart != 0L) {
+            listener.onValidated(System.nanoTime() - validationStart);
+        }
+        return new ThaiQRPromptPay(paymentField, dynamic ? DYNAMIC_QR_CODE : STATIC_QR_CODE, OutputType.PROMPTPAY,
+                billerId, ref1, ref2, ref3, mobileNumber, nationalId, eWalletId, satang, DEFAULT_CURRENCY_CODE,
+                DEFAULT_COUNTRY_CODE, PngEncoder.DEFAULT_COMPRESSION_LEVEL, EncodingProfile.DEFAULT, null);
+    }
+
+    /**
+     * Turns a local mobile number such as 0812345678 into the proxy written in tag 29, 0066812345678.
+     */
+    private static String toMobileNumberProxy(String mobileNumber) {
+        if (mobileNumber == null) {
+            return null;
+        }
+        return "00" + DEFAULT_COUNTRY_CODE_TEL + (mobileNumber.startsWith("0") ? mobileNumber.substring(1) : mobileNumber);
     }
 
     /**
      * Returns the content for later QR generation
      *
      * @return The content of generated QR.
+     * @throws IllegalArgumentException if a field only checked for its length holds a non-ASCII character.
      */
     public String generateContent() {
+        String content = this.content;
+        if (content == null) {
+            content = new String(encodedContent(), StandardCharsets.US_ASCII);
+            this.content = content;
+        }
+        return content;
+    }
+
+    /**
+     * Returns the content as ASCII bytes, encoding it on first use. The array must not be modified.
+     */
+    private byte[] encodedContent() {
+        byte[] encoded = encodedContent;
+        if (encoded == null) {
+            PromptPayListener listener = PromptPayInstrumentation.listener;
+            long start = 0L;
+            if (listener != null) {
+                listener.onStageStarted(PromptPayListener.Stage.CONTENT);
+                start = System.nanoTime();
+            }
+            encoded = encodeContent();
+            encodedContent = encoded;
+            if (listener != null) {
+                listener.onContentGenerated(outputType, encoded.length, System.nanoTime() - start);
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Encodes the content into a new array on every call, without keeping it.
+     */
+    byte[] encodeContent() {
+        byte[] encoded = new byte[outputType == OutputType.BOT3 ? botLength() : promptPayQRLength()];
+        encodeContentInto(encoded, 0);
+        return encoded;
+    }
+
+    /**
+     * Encodes the content into the specified array on every call, without bounds checks or keeping it.
+     *
+     * @return The position after the last byte written.
+     */
+    int encodeContentInto(byte[] dst, int offset) {
         switch (outputType) {
             case BOT3:
-                return generateBOT();
+                return writeBOT(dst, offset);
             case PROMPTPAY:
             default:
-                return generatePromptPayQR();
+                return writePromptPayQR(dst, offset);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the content takes when written by {@link #generateContentInto(byte[], int)}
+     *
+     * @return The length of generated content in bytes.
+     */
+    public int contentLength() {
+        return encodedContent().length;
+    }
+
+    /**
+     * Writes the content for later QR generation as ASCII bytes into the specified array
+     *
+     * @param dst    the array which the content would be written to
+     * @param offset the position in the array to start writing at
+     * @return The number of bytes written.
+     * @throws IndexOutOfBoundsException if the array does not have enough room for the content.
+     */
+    public int generateContentInto(byte[] dst, int offset) {
+        byte[] encoded = encodedContent();
+        int length = encoded.length;
+        if (offset < 0 || offset > dst.length || dst.length - offset < length) {
+            throw new IndexOutOfBoundsException("Content requires " + length + " byte(s) from offset " + offset + ".");
+        }
+        System.arraycopy(encoded, 0, dst, offset, length);
+        return length;
+    }
+
+    /**
+     * Writes the content for later QR generation as ASCII bytes into the specified buffer at its current position
+     *
+     * @param dst the buffer which the content would be written to
+     * @return The number of bytes written.
+     * @throws BufferOverflowException if the buffer does not have enough room for the content.
+     */
+    public int generateContentInto(ByteBuffer dst) {
+        byte[] encoded = encodedContent();
+        if (dst.remaining() < encoded.length) {
+            throw new BufferOverflowException();
         }
+        dst.put(encoded);
+        return encoded.length;
+    }
+
+    /**
+     * Read back a payload generated by this library or another PromptPay generator, in either the EMVCo or BOT3 layout
+     *
+     * @param payload the content of a QR
+     * @return The parsed payload, whose fields are slices of the specified sequence.
+     * @throws IllegalStateException if the payload is malformed, fails its CRC or is not a PromptPay payload.
+     */
+    public static PromptPayPayload parse(CharSequence payload) {
+        return PromptPayPayload.parse(payload, true);
+    }
+
+    /**
+     * Read back a payload held as ASCII bytes, in either the EMVCo or BOT3 layout
+     *
+     * @param payload the content of a QR as ASCII bytes
+     * @return The parsed payload, whose fields are read from the specified array when accessed.
+     * @throws IllegalStateException if the payload is malformed, fails its CRC or is not a PromptPay payload.
+     */
+    public static PromptPayPayload parse(byte[] payload) {
+        return parse(payload, 0, payload.length);
+    }
+
+    /**
+     * Read back a payload held as ASCII bytes in a range of the specified array, in either the EMVCo or BOT3 layout
+     *
+     * @param payload the array holding the content of a QR as ASCII bytes
+     * @param offset  the position of the content in the array
+     * @param length  the length of the content in bytes
+     * @return The parsed payload, whose fields are read from the specified array when accessed.
+     * @throws IllegalStateException if the payload is malformed, fails its CRC or is not a PromptPay payload.
+     */
+    public static PromptPayPayload parse(byte[] payload, int offset, int length) {
+        return PromptPayPayload.parse(new AsciiSequence(payload, offset, length), true);
     }
 
-    private static ByteArrayOutputStream generateQRCodeImage(String text, int width, int height)
+    private ByteArrayOutputStream generateQRCodeImage(byte[] content, int width, int height, EncodingProfile profile)
             throws IOException, WriterException {
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        QRCodeWriter qrCodeWriter = new QRCodeWriter();
-        BitMatrix bitMatrix = qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, width, height);
-
-        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", byteArrayOutputStream);
+        writeQRCodeImage(content, width, height, profile, byteArrayOutputStream);
         return byteArrayOutputStream;
     }
 
-    private String generateBOT() {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("|");
-        stringBuilder.append(billerId);
-        stringBuilder.append("\n");
-        stringBuilder.append(ref1);
-        stringBuilder.append("\n");
+    private void writeQRCodeImage(byte[] content, int width, int height, EncodingProfile profile, OutputStream out)
+            throws IOException, WriterException {
+        PromptPayListener listener = PromptPayInstrumentation.listener;
+        if (listener == null) {
+            QrMatrix matrix = MatrixEncoder.encode(content, profile, pngCompressionLevel);
+            matrix.writePng(matrix.toBitMatrix(width, height), out);
+            return;
+        }
+        listener.onStageStarted(PromptPayListener.Stage.QR_ENCODE);
+        long start = System.nanoTime();
+        QrMatrix matrix = MatrixEncoder.encode(content, profile, pngCompressionLevel);
+        BitMatrix bitMatrix = matrix.toBitMatrix(width, height);
+        listener.onQrEncoded(matrix.getVersion(), bitMatrix.getWidth(), bitMatrix.getHeight(), System.nanoTime() - start);
+        matrix.writePng(bitMatrix, out);
+    }
+
+    /**
+     * Returns the PNG image, from the render cache if there is one. The array must not be modified.
+     */
+    private byte[] renderImage(int width, int height, EncodingProfile profile) throws IOException, WriterException {
+        if (renderCache == null) {
+            return generateQRCodeImage(encodedContent(), width, height, profile).toByteArray();
+        }
+        String content = generateContent();
+        byte[] image = renderCache.get(content, profile, width, height, pngCompressionLevel);
+        if (image == null) {
+            image = generateQRCodeImage(encodedContent(), width, height, profile).toByteArray();
+            renderCache.put(content, profile, width, height, pngCompressionLevel, image);
+        }
+        return image;
+    }
+
+    private static void validateEncodingProfile(EncodingProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("Encoding profile is required.");
+        }
+    }
+
+    private int botLength() {
+        int length = 4 + billerId.length() + ref1.length() + decimalLength(amount != NO_AMOUNT ? amount : 0);
         if (ref2 != null) {
-            stringBuilder.append(ref2);
+            length += ref2.length();
         }
-        stringBuilder.append("\n");
-        if (amount != null) {
-            stringBuilder.append(amount.multiply(oneHundred).setScale(0, RoundingMode.DOWN));
-        } else {
-            stringBuilder.append(0);
+        return length;
+    }
+
+    private int writeBOT(byte[] dst, int offset) {
+        offset = writeAscii(dst, offset, '|');
+        offset = writeAscii(dst, offset, billerId);
+        offset = writeAscii(dst, offset, '\n');
+        offset = writeAscii(dst, offset, ref1);
+        offset = writeAscii(dst, offset, '\n');
+        if (ref2 != null) {
+            offset = writeAscii(dst, offset, ref2);
         }
-        return stringBuilder.toString();
+        offset = writeAscii(dst, offset, '\n');
+        return writeDecimal(dst, offset, amount != NO_AMOUNT ? amount : 0);
     }
 
-    private String generatePromptPayQR() {
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append(generateField(0, PAYLOAD_FORMAT_INDICATOR));
-        stringBuilder.append(generateField(1, usageType));
+    private int merchantInformationLength() {
+        int length = fieldLength(acquirerId.length());
+        if (paymentField == CREDIT_TRANSFER_DATA_FIELD_ID) {
+            if (mobileNumber != null) {
+                length += fieldLength(mobileNumber.length());
+            } else if (nationalId != null) {
+                length += fieldLength(nationalId.length());
+            } else if (eWalletId != null) {
+                length += fieldLength(eWalletId.length());
+            }
+        } else if (paymentField == BILL_PAYMENT_DATA_FIELD_ID) {
+            length += fieldLength(billerId.length());
+            length += fieldLength(ref1.length());
+            if (ref2 != null) {
+                length += fieldLength(ref2.length());
+            }
+        }
+        return length;
+    }
+
+    private int promptPayQRLength() {
+        int length = fieldLength(PAYLOAD_FORMAT_INDICATOR.length());
+        length += fieldLength(usageType.length());
+        length += fieldLength(merchantInformationLength());
+        length += fieldLength(currencyCode.length());
+        if (amount != NO_AMOUNT) {
+            length += fieldLength(amountLength(amount));
+        }
+        length += fieldLength(countryCode.length());
+        if (ref3 != null) {
+            length += fieldLength(fieldLength(ref3.length()));
+        }
+        return length + fieldLength(4);
+    }
 
-        StringBuilder content = new StringBuilder(generateField(0, acquirerId));
-        if (paymentField == 29) {
+    private int writeMerchantInformation(byte[] dst, int offset) {
+        offset = writeHeader(dst, offset, paymentField, merchantInformationLength());
+        offset = writeField(dst, offset, 0, acquirerId);
+        if (paymentField == CREDIT_TRANSFER_DATA_FIELD_ID) {
             if (mobileNumber != null) {
-                if (mobileNumber.startsWith("0")) {
-                    mobileNumber = mobileNumber.substring(1);
-                }
-                content.append(generateField(1, "00" + DEFAULT_COUNTRY_CODE_TEL + mobileNumber));
+                offset = writeField(dst, offset, 1, mobileNumber);
             } else if (nationalId != null) {
-                content.append(generateField(2, nationalId));
+                offset = writeField(dst, offset, 2, nationalId);
             } else if (eWalletId != null) {
-                content.append(generateField(3, eWalletId));
+                offset = writeField(dst, offset, 3, eWalletId);
             }
-        } else if (paymentField == 30) {
-            content.append(generateField(1, billerId));
-            content.append(generateField(2, ref1));
+        } else if (paymentField == BILL_PAYMENT_DATA_FIELD_ID) {
+            offset = writeField(dst, offset, 1, billerId);
+            offset = writeField(dst, offset, 2, ref1);
             if (ref2 != null) {
-                content.append(generateField(3, ref2));
+                offset = writeField(dst, offset, 3, ref2);
             }
         }
-        stringBuilder.append(generateField(paymentField, content.toString()));
+        return offset;
+    }
+
+    private int writePromptPayQR(byte[] dst, int offset) {
+        int start = offset;
+        offset = writeField(dst, offset, 0, PAYLOAD_FORMAT_INDICATOR);
+        offset = writeField(dst, offset, 1, usageType);
+        offset = writeMerchantInformation(dst, offset);
 
-        stringBuilder.append(generateField(53, currencyCode));
-        if (amount != null) {
-            stringBuilder.append(generateField(54, MONEY_FORMAT.format(amount)));
+        offset = writeField(dst, offset, 53, currencyCode);
+        if (amount != NO_AMOUNT) {
+            offset = writeHeader(dst, offset, 54, amountLength(amount));
+            offset = writeAmount(dst, offset, amount);
         }
 
-        stringBuilder.append(generateField(58, countryCode));
+        offset = writeField(dst, offset, 58, countryCode);
         if (ref3 != null) {
-            stringBuilder.append(generateField(62, generateField(7, ref3)));
+            offset = writeHeader(dst, offset, 62, fieldLength(ref3.length()));
+            offset = writeField(dst, offset, 7, ref3);
         }
 
-        stringBuilder.append("6304");
-        stringBuilder.append(Helper.crc16((stringBuilder.toString()).getBytes()));
-        return stringBuilder.toString();
+        offset = writeHeader(dst, offset, 63, 4);
+        return Crc16.writeHex(crc16(dst, start, offset - start), dst, offset);
+    }
+
+    /**
+     * Pre-encodes every field of this QR that does not depend on amount or references.
+     */
+    PromptPayTemplate compileTemplate() {
+        if (outputType == OutputType.BOT3) {
+            byte[] head = new byte[2 + billerId.length()];
+            int offset = writeAscii(head, 0, '|');
+            offset = writeAscii(head, offset, billerId);
+            writeAscii(head, offset, '\n');
+            return new PromptPayTemplate(outputType, head, null, null, null);
+        }
+        int headLength = fieldLength(PAYLOAD_FORMAT_INDICATOR.length()) + fieldLength(usageType.length());
+        byte[] country = new byte[fieldLength(countryCode.length())];
+        writeField(country, 0, 58, countryCode);
+        if (paymentField == CREDIT_TRANSFER_DATA_FIELD_ID) {
+            // The whole merchant information is fixed, so everything up to the amount goes into the head
+            byte[] head = new byte[headLength + fieldLength(merchantInformationLength()) + fieldLength(currencyCode.length())];
+            int offset = writeField(head, 0, 0, PAYLOAD_FORMAT_INDICATOR);
+            offset = writeField(head, offset, 1, usageType);
+            offset = writeMerchantInformation(head, offset);
+            writeField(head, offset, 53, currencyCode);
+            return new PromptPayTemplate(outputType, head, null, null, country);
+        }
+        byte[] head = new byte[headLength];
+        int offset = writeField(head, 0, 0, PAYLOAD_FORMAT_INDICATOR);
+        writeField(head, offset, 1, usageType);
+        byte[] merchant = new byte[fieldLength(acquirerId.length()) + fieldLength(billerId.length())];
+        offset = writeField(merchant, 0, 0, acquirerId);
+        writeField(merchant, offset, 1, billerId);
+        byte[] currency = new byte[fieldLength(currencyCode.length())];
+        writeField(currency, 0, 53, currencyCode);
+        return new PromptPayTemplate(outputType, head, merchant, currency, country);
     }
 
     public enum OutputType {
@@ -161,8 +549,71 @@ public class ThaiQRPromptPay {
         return generateContent();
     }
 
-    private String generateField(int fieldId, String content) {
-        return String.format("%02d", fieldId) + String.format("%02d", content.length()) + content;
+    /**
+     * Two instances are equal if they were built with the same fields and so generate the same content.
+     * Drawing options such as PNG compression level and render cache are not compared.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ThaiQRPromptPay)) {
+            return false;
+        }
+        ThaiQRPromptPay that = (ThaiQRPromptPay) o;
+        return amount == that.amount
+                && outputType == that.outputType
+                && paymentField == that.paymentField
+                && Objects.equals(usageType, that.usageType)
+                && Objects.equals(acquirerId, that.acquirerId)
+                && Objects.equals(currencyCode, that.currencyCode)
+                && Objects.equals(countryCode, that.countryCode)
+                && Objects.equals(billerId, that.billerId)
+                && Objects.equals(mobileNumber, that.mobileNumber)
+                && Objects.equals(nationalId, that.nationalId)
+                && Objects.equals(eWalletId, that.eWalletId)
+                && Objects.equals(ref1, that.ref1)
+                && Objects.equals(ref2, that.ref2)
+                && Objects.equals(ref3, that.ref3);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(paymentField, usageType, acquirerId, amount, currencyCode, countryCode, billerId,
+                mobileNumber, nationalId, eWalletId, ref1, ref2, ref3, outputType);
+    }
+
+    /**
+     * Encode the content as QR modules once, to draw at several sizes or in several formats, or to cache.
+     *
+     * @return The modules, drawing the same images as this QR.
+     * @throws WriterException if the content of QR code is malformed.
+     */
+    public QrMatrix toMatrix() throws WriterException {
+        return toMatrix(encodingProfile);
+    }
+
+    /**
+     * Encode the content as QR modules once with the specified encoding profile.
+     *
+     * @param profile the encoding profile, instead of the one this QR was built with
+     * @return The modules, drawing the same images as this QR drawn with the profile.
+     * @throws WriterException if the content of QR code is malformed or does not fit the version of the profile.
+     */
+    public QrMatrix toMatrix(EncodingProfile profile) throws WriterException {
+        validateEncodingProfile(profile);
+        byte[] content = encodedContent();
+        PromptPayListener listener = PromptPayInstrumentation.listener;
+        if (listener == null) {
+            return MatrixEncoder.encode(content, profile, pngCompressionLevel);
+        }
+        listener.onStageStarted(PromptPayListener.Stage.QR_ENCODE);
+        long start = System.nanoTime();
+        QrMatrix matrix = MatrixEncoder.encode(content, profile, pngCompressionLevel);
+        int modules = matrix.getSize() + matrix.getMargin() * 2;
+        listener.onQrEncoded(matrix.getVersion(), modules, modules, System.nanoTime() - start);
+        return matrix;
     }
 
     /**
@@ -175,11 +626,98 @@ public class ThaiQRPromptPay {
      * @throws WriterException if the content of QR code is malformed.
      */
     public void draw(int width, int height, File file) throws IOException, WriterException {
-        try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-            fileOutputStream.write(generateQRCodeImage(generateContent(), width, height).toByteArray());
+        draw(width, height, file, encodingProfile);
+    }
+
+    /**
+     * Draw the QR code image to the specified path with specified width, height and encoding profile.
+     *
+     * @param width   the width of QR code in pixels
+     * @param height  the height of QR code in pixels
+     * @param file    the path which QR code image would be written to (PNG format)
+     * @param profile the encoding profile, instead of the one this QR was built with
+     * @throws IOException     if the path to write QR code is invalid.
+     * @throws WriterException if the content of QR code is malformed or does not fit the version of the profile.
+     */
+    public void draw(int width, int height, File file, EncodingProfile profile) throws IOException, WriterException {
+        validateEncodingProfile(profile);
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+            drawTo(width, height, outputStream, profile);
+        }
+    }
+
+    /**
+     * Draw the QR code image as PNG to the specified stream, encoding straight into it without buffering the image.
+     * The stream is not closed.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param out    the stream which QR code image would be written to
+     * @throws IOException     if the stream could not be written.
+     * @throws WriterException if the content of QR code is malformed.
+     */
+    public void drawTo(int width, int height, OutputStream out) throws IOException, WriterException {
+        drawTo(width, height, out, encodingProfile);
+    }
+
+    /**
+     * Draw the QR code image as PNG with the specified encoding profile to the specified stream, encoding straight
+     * into it without buffering the image. The stream is not closed.
+     *
+     * @param width   the width of QR code in pixels
+     * @param height  the height of QR code in pixels
+     * @param out     the stream which QR code image would be written to
+     * @param profile the encoding profile, instead of the one this QR was built with
+     * @throws IOException     if the stream could not be written.
+     * @throws WriterException if the content of QR code is malformed or does not fit the version of the profile.
+     */
+    public void drawTo(int width, int height, OutputStream out, EncodingProfile profile) throws IOException, WriterException {
+        validateEncodingProfile(profile);
+        if (renderCache != null) {
+            out.write(renderImage(width, height, profile));
+        } else {
+            writeQRCodeImage(encodedContent(), width, height, profile, out);
         }
     }
 
+    /**
+     * Draw the QR code image as PNG to the specified blocking channel, encoding straight into it without buffering
+     * the image. The channel is not closed.
+     *
+     * @param width   the width of QR code in pixels
+     * @param height  the height of QR code in pixels
+     * @param channel the channel which QR code image would be written to
+     * @throws IOException     if the channel could not be written.
+     * @throws WriterException if the content of QR code is malformed.
+     */
+    public void drawTo(int width, int height, WritableByteChannel channel) throws IOException, WriterException {
+        drawTo(width, height, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Draw the QR code image as PNG into the specified buffer at its current position.
+     *
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param dst    the buffer which QR code image would be written to
+     * @return The number of bytes written.
+     * @throws BufferOverflowException if the buffer does not have enough room for the image, leaving its position
+     *                                 unchanged.
+     * @throws WriterException         if the content of QR code is malformed.
+     */
+    public int drawTo(int width, int height, ByteBuffer dst) throws WriterException {
+        int position = dst.position();
+        try {
+            drawTo(width, height, new ByteBufferOutputStream(dst));
+        } catch (BufferOverflowException e) {
+            dst.position(position);
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dst.position() - position;
+    }
+
     /**
      * Draw the QR code image to Base64 string.
      * @param width the width of QR code in pixels
@@ -189,8 +727,64 @@ public class ThaiQRPromptPay {
      * @throws WriterException if the content of QR code is malformed.
      */
     public String drawToBase64(int width, int height) throws IOException, WriterException {
-        byte[] imageData = generateQRCodeImage(generateContent(), width, height).toByteArray();
-        return new String(Base64.encodeBase64(imageData));
+        return drawToBase64(width, height, encodingProfile);
+    }
+
+    /**
+     * Draw the QR code image with the specified encoding profile to Base64 string.
+     * @param width the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param profile the encoding profile, instead of the one this QR was built with
+     * @return the base64 string of QR code image
+     * @throws IOException if the image could not be written.
+     * @throws WriterException if the content of QR code is malformed or does not fit the version of the profile.
+     */
+    public String drawToBase64(int width, int height, EncodingProfile profile) throws IOException, WriterException {
+        validateEncodingProfile(profile);
+        byte[] imageData = renderImage(width, height, profile);
+        StringBuilder base64 = new StringBuilder(Base64Encoder.encodedLength(imageData.length));
+        Base64Encoder.encode(imageData, 0, imageData.length, base64);
+        return base64.toString();
+    }
+
+    /**
+     * Draw the QR code image as Base64 of PNG straight into the specified Appendable, such as a Writer or
+     * StringBuilder, without buffering the image or its encoding.
+     *
+     * @param width   the width of QR code in pixels
+     * @param height  the height of QR code in pixels
+     * @param out     the Appendable which Base64 string would be appended to
+     * @param dataUri true to prepend {@code data:image/png;base64,} so the string can be used as an image URL
+     * @throws IOException     if the Appendable could not be written.
+     * @throws WriterException if the content of QR code is malformed.
+     */
+    public void drawToBase64(int width, int height, Appendable out, boolean dataUri) throws IOException, WriterException {
+        if (dataUri) {
+            out.append(Base64Encoder.DATA_URI_PREFIX);
+        }
+        try (Base64Encoder encoder = new Base64Encoder(out)) {
+            drawTo(width, height, encoder);
+        }
+    }
+
+    /**
+     * Draw the QR code image as Base64 of PNG in ASCII straight into the specified stream, without buffering the image
+     * or its encoding. The stream is not closed.
+     *
+     * @param width   the width of QR code in pixels
+     * @param height  the height of QR code in pixels
+     * @param out     the stream which Base64 string would be written to
+     * @param dataUri true to prepend {@code data:image/png;base64,} so the string can be used as an image URL
+     * @throws IOException     if the stream could not be written.
+     * @throws WriterException if the content of QR code is malformed.
+     */
+    public void drawToBase64(int width, int height, OutputStream out, boolean dataUri) throws IOException, WriterException {
+        if (dataUri) {
+            out.write(Base64Encoder.DATA_URI_PREFIX.getBytes(StandardCharsets.US_ASCII));
+        }
+        try (Base64Encoder encoder = new Base64Encoder(out)) {
+            drawTo(width, height, encoder);
+        }
     }
 
     /**
@@ -202,7 +796,154 @@ public class ThaiQRPromptPay {
      * @throws WriterException if the content of QR code is malformed.
      */
     public byte[] drawToByteArray(int width, int height) throws IOException, WriterException {
-        return generateQRCodeImage(generateContent(), width, height).toByteArray();
+        return drawToByteArray(width, height, encodingProfile);
+    }
+
+    /**
+     * Draw the QR code image with the specified encoding profile to byte array.
+     * @param width the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param profile the encoding profile, instead of the one this QR was built with
+     * @return the byte array of QR code image
+     * @throws IOException if the image could not be written.
+     * @throws WriterException if the content of QR code is malformed or does not fit the version of the profile.
+     */
+    public byte[] drawToByteArray(int width, int height, EncodingProfile profile) throws IOException, WriterException {
+        validateEncodingProfile(profile);
+        byte[] image = renderImage(width, height, profile);
+        return renderCache != null ? image.clone() : image;
+    }
+
+    /**
+     * Draw the QR code image as PNG to the specified file on the shared {@link RenderPool}.
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @param file   the path which QR code image would be written to (PNG format)
+     * @return A future completed when the file is written, or exceptionally with the exception of
+     * {@link #draw(int, int, File)} or with RejectedExecutionException if the pool is overloaded.
+     */
+    public CompletableFuture<Void> drawAsync(int width, int height, File file) {
+        return drawAsync(width, height, file, RenderPool.getDefault());
+    }
+
+    /**
+     * Draw the QR code image as PNG to the specified file on the specified executor.
+     * @param width    the width of QR code in pixels
+     * @param height   the height of QR code in pixels
+     * @param file     the path which QR code image would be written to (PNG format)
+     * @param executor the executor drawing the image
+     * @return A future completed when the file is written, or exceptionally with the exception of
+     * {@link #draw(int, int, File)} or with RejectedExecutionException if the executor rejects the draw.
+     */
+    public CompletableFuture<Void> drawAsync(final int width, final int height, final File file, Executor executor) {
+        return supplyAsync(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException, WriterException {
+                draw(width, height, file);
+                return null;
+            }
+        }, executor);
+    }
+
+    /**
+     * Draw the QR code image to Base64 string on the shared {@link RenderPool}.
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @return A future of the base64 string of QR code image, completed exceptionally with the exception of
+     * {@link #drawToBase64(int, int)} or with RejectedExecutionException if the pool is overloaded.
+     */
+    public CompletableFuture<String> drawToBase64Async(int width, int height) {
+        return drawToBase64Async(width, height, RenderPool.getDefault());
+    }
+
+    /**
+     * Draw the QR code image to Base64 string on the specified executor.
+     * @param width    the width of QR code in pixels
+     * @param height   the height of QR code in pixels
+     * @param executor the executor drawing the image
+     * @return A future of the base64 string of QR code image, completed exceptionally with the exception of
+     * {@link #drawToBase64(int, int)} or with RejectedExecutionException if the executor rejects the draw.
+     */
+    public CompletableFuture<String> drawToBase64Async(final int width, final int height, Executor executor) {
+        return supplyAsync(new Callable<String>() {
+            @Override
+            public String call() throws IOException, WriterException {
+                return drawToBase64(width, height);
+            }
+        }, executor);
+    }
+
+    /**
+     * Draw the QR code image to byte array on the shared {@link RenderPool}.
+     * @param width  the width of QR code in pixels
+     * @param height the height of QR code in pixels
+     * @return A future of the byte array of QR code image, completed exceptionally with the exception of
+     * {@link #drawToByteArray(int, int)} or with RejectedExecutionException if the pool is overloaded.
+     */
+    public CompletableFuture<byte[]> drawToByteArrayAsync(int width, int height) {
+        return drawToByteArrayAsync(width, height, RenderPool.getDefault());
+    }
+
+    /**
+     * Draw the QR code image to byte array on the specified executor.
+     * @param width    the width of QR code in pixels
+     * @param height   the height of QR code in pixels
+     * @param executor the executor drawing the image
+     * @return A future of the byte array of QR code image, completed exceptionally with the exception of
+     * {@link #drawToByteArray(int, int)} or with RejectedExecutionException if the executor rejects the draw.
+     */
+    public CompletableFuture<byte[]> drawToByteArrayAsync(final int width, final int height, Executor executor) {
+        return supplyAsync(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException, WriterException {
+                return drawToByteArray(width, height);
+            }
+        }, executor);
+    }
+
+    /**
+     * Unlike {@link CompletableFuture#supplyAsync}, completes with the checked exception itself rather than wrapped,
+     * and reports a rejection through the future instead of throwing it at the caller.
+     */
+    private static <T> CompletableFuture<T> supplyAsync(final Callable<T> draw, Executor executor) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(draw.call());
+                    } catch (Exception e) {
+                        future.completeExceptionally(e);
+                    } catch (Error e) {
+                        // Callers waiting on the future would otherwise hang; the pool thread still sees the error
+                        future.completeExceptionally(e);
+                        throw e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer dst;
+
+        private ByteBufferOutputStream(ByteBuffer dst) {
+            this.dst = dst;
+        }
+
+        @Override
+        public void write(int b) {
+            dst.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            dst.put(b, off, len);
+        }
     }
 
     public static class Builder {
@@ -211,6 +952,21 @@ public class ThaiQRPromptPay {
         protected String countryCode = DEFAULT_COUNTRY_CODE;
         protected SelectPromptPayTypeBuilder selectPromptPayTypeBuilder = new SelectPromptPayTypeBuilder();
         protected OutputType outputType = OutputType.PROMPTPAY;
+        protected int pngCompressionLevel = PngEncoder.DEFAULT_COMPRESSION_LEVEL;
+        protected EncodingProfile encodingProfile = EncodingProfile.DEFAULT;
+        protected RenderCache renderCache;
+        private boolean deferValidation;
+
+        /**
+         * Specify that setters keep invalid values instead of throwing, so that {@link BuildReady#validate()} and
+         * {@link BuildReady#tryBuild()} report every violation at once
+         * Default is to throw IllegalStateException from the setter given an invalid value
+         * @return This builder.
+         */
+        public Builder deferValidation() {
+            this.deferValidation = true;
+            return this;
+        }
 
         /**
          * Specify currency code
@@ -219,8 +975,7 @@ public class ThaiQRPromptPay {
          * @return This builder.
          */
         public Builder currencyCode(String currencyCode) {
-            validateNumeric("Currency Code", currencyCode);
-            validateLength("Currency Code", currencyCode, 3);
+            check(checkCurrencyCode(null, currencyCode));
             this.currencyCode = currencyCode;
             return this;
         }
@@ -232,8 +987,43 @@ public class ThaiQRPromptPay {
          * @return This builder.
          */
         public Builder countryCode(String countryCode) {
-            validateLength("Country Code", countryCode, 2);
-            this.countryCode = countryCode.toUpperCase();
+            check(checkCountryCode(null, countryCode));
+            this.countryCode = countryCode != null ? countryCode.toUpperCase() : null;
+            return this;
+        }
+
+        /**
+         * Specify deflate level of drawn PNG images, from 0 (no compression) to 9 (smallest image)
+         * Default is 1 (fastest)
+         * @param pngCompressionLevel PNG compression level
+         * @return This builder.
+         */
+        public Builder pngCompressionLevel(int pngCompressionLevel) {
+            PngEncoder.validateCompressionLevel(pngCompressionLevel);
+            this.pngCompressionLevel = pngCompressionLevel;
+            return this;
+        }
+
+        /**
+         * Specify how drawn images encode the content: error correction level, quiet zone, version and character set
+         * Default is {@link EncodingProfile#DEFAULT}
+         * @param encodingProfile Encoding profile
+         * @return This builder.
+         */
+        public Builder encodingProfile(EncodingProfile encodingProfile) {
+            validateEncodingProfile(encodingProfile);
+            this.encodingProfile = encodingProfile;
+            return this;
+        }
+
+        /**
+         * Specify cache which drawn images are kept in and looked up from, shared by every QR built with it
+         * Default is no cache
+         * @param renderCache Render cache, or null to always draw
+         * @return This builder.
+         */
+        public Builder renderCache(RenderCache renderCache) {
+            this.renderCache = renderCache;
             return this;
         }
 
@@ -254,6 +1044,102 @@ public class ThaiQRPromptPay {
             return selectPromptPayTypeBuilder;
         }
 
+        private List<Violation> timedCollectViolations() {
+            PromptPayListener listener = PromptPayInstrumentation.listener;
+            if (listener == null) {
+                return collectViolations();
+            }
+            listener.onStageStarted(PromptPayListener.Stage.VALIDATION);
+            long start = System.nanoTime();
+            List<Violation> violations = collectViolations();
+            listener.onValidated(System.nanoTime() - start);
+            return violations;
+        }
+
+        private List<Violation> collectViolations() {
+            List<Violation> violations = checkRequired(null, "Currency Code", currencyCode);
+            violations = checkCurrencyCode(violations, currencyCode);
+            violations = checkRequired(violations, "Country Code", countryCode);
+            violations = checkCountryCode(violations, countryCode);
+            return selectPromptPayTypeBuilder.selectPromptPayType.collectViolations(violations);
+        }
+
+        /**
+         * Throws the first violation found by a setter, unless validation is deferred to the end of the builder.
+         */
+        private void check(List<Violation> violations) {
+            if (violations != null && !deferValidation) {
+                throw new IllegalStateException(violations.get(0).getMessage());
+            }
+        }
+
+        // Format checks of each field, shared by its setter and by the checks of the finished builder
+
+        private static List<Violation> checkCurrencyCode(List<Violation> violations, String currencyCode) {
+            violations = checkNumeric(violations, "Currency Code", currencyCode);
+            return checkLength(violations, "Currency Code", currencyCode, 3);
+        }
+
+        private static List<Violation> checkCountryCode(List<Violation> violations, String countryCode) {
+            return checkLength(violations, "Country Code", countryCode, 2);
+        }
+
+        private static List<Violation> checkMobileNumber(List<Violation> violations, String mobileNumber) {
+            violations = checkNumeric(violations, "Mobile Number", mobileNumber);
+            return checkLength(violations, "Mobile Number", mobileNumber, 10);
+        }
+
+        private static List<Violation> checkNationalId(List<Violation> violations, String nationalId) {
+            violations = checkNumeric(violations, "National ID/Tax ID", nationalId);
+            return checkLength(violations, "National ID/Tax ID", nationalId, 13);
+        }
+
+        private static List<Violation> checkEWalletId(List<Violation> violations, String eWalletId) {
+            violations = checkNumeric(violations, "E-Wallet ID", eWalletId);
+            return checkLength(violations, "E-Wallet ID", eWalletId, 15);
+        }
+
+        private static List<Violation> checkBillerId(List<Violation> violations, String billerId) {
+            violations = checkNumeric(violations, "Biller ID", billerId);
+            return checkLength(violations, "Biller ID", billerId, 15);
+        }
+
+        private static List<Violation> checkRef1(List<Violation> violations, String ref1) {
+            violations = checkAlphanumeric(violations, "Reference 1", ref1);
+            return checkLength(violations, "Reference 1", ref1, 15);
+        }
+
+        private static List<Violation> checkRef2(List<Violation> violations, String ref2) {
+            violations = checkAlphanumeric(violations, "Reference 2", ref2);
+            return checkLength(violations, "Reference 2", ref2, 20);
+        }
+
+        private static List<Violation> checkRef3(List<Violation> violations, String ref3) {
+            violations = checkAlphanumeric(violations, "Reference 3", ref3);
+            return checkLength(violations, "Terminal ID/Reference 3", ref3, 26);
+        }
+
+        private static List<Violation> checkDecimalAmount(List<Violation> violations, BigDecimal amount) {
+            violations = checkRequired(violations, "Amount", amount);
+            return amount != null ? checkAmount(violations, amount) : violations;
+        }
+
+        private ValidationResult validate(boolean construct) {
+            List<Violation> violations = timedCollectViolations();
+            if (violations != null || !construct) {
+                return new ValidationResult(violations, null);
+            }
+            return new ValidationResult(null, fromBuilder(this));
+        }
+
+        private ThaiQRPromptPay build() {
+            List<Violation> violations = timedCollectViolations();
+            if (violations != null) {
+                throw new IllegalStateException(violations.get(0).getMessage());
+            }
+            return fromBuilder(this);
+        }
+
         public interface BillPaymentBuilderBillerId {
             BillPaymentBuilderRef1 billerId(String billerId);
         }
@@ -265,6 +1151,8 @@ public class ThaiQRPromptPay {
         public interface BillPaymentBuilderOptionalDetail extends BuildReady {
             BillPaymentBuilderOptionalDetail amount(BigDecimal amount);
 
+            BillPaymentBuilderOptionalDetail amount(long satang);
+
             BillPaymentBuilderOptionalDetail ref2(String ref2);
 
             BillPaymentBuilderOptionalDetail ref3(String ref3);
@@ -280,14 +1168,34 @@ public class ThaiQRPromptPay {
 
         public interface CreditTransferBuilderAmount extends BuildReady {
             BuildReady amount(BigDecimal amount);
+
+            BuildReady amount(long satang);
         }
 
         public interface BuildReady {
+            /**
+             * Construct ThaiQRPromptPay object
+             * @return Returns an instance of ThaiQRPromptPay created from the fields set on this builder.
+             * @throws IllegalStateException with the message of the first violation if any field is invalid.
+             */
             ThaiQRPromptPay build();
+
+            /**
+             * Check every field set on this builder without throwing, including those kept by setters after
+             * {@link Builder#deferValidation()}
+             * @return The result listing all field violations, empty if the builder is valid.
+             */
+            ValidationResult validate();
+
+            /**
+             * Construct ThaiQRPromptPay object without throwing on invalid fields
+             * @return The result holding either the instance or all field violations.
+             */
+            ValidationResult tryBuild();
         }
 
         interface SelectPromptPayType {
-
+            List<Violation> collectViolations(List<Violation> violations);
         }
 
         public class SelectPromptPayTypeBuilder {
@@ -308,16 +1216,70 @@ public class ThaiQRPromptPay {
                 return creditTransferBuilder;
             }
 
-            private class CreditTransferBuilder implements SelectPromptPayType, CreditTransferBuilderIdentifier, CreditTransferBuilderAmount {
+            private abstract class AmountBuilder implements SelectPromptPayType, BuildReady {
+                private boolean hasAmount;
+                private boolean hasDecimalAmount;
+                private long amount;
+                private BigDecimal decimalAmount;
+
+                protected void setAmount(BigDecimal amount) {
+                    check(checkDecimalAmount(null, amount));
+                    this.hasAmount = true;
+                    this.hasDecimalAmount = true;
+                    this.decimalAmount = amount;
+                }
+
+                protected void setAmount(long satang) {
+                    check(checkAmount(null, satang));
+                    this.hasAmount = true;
+                    this.hasDecimalAmount = false;
+                    this.amount = satang;
+                }
+
+                /**
+                 * Returns the validated amount in satang, or NO_AMOUNT if none was specified
+                 */
+                protected long satang() {
+                    if (!hasAmount) {
+                        return NO_AMOUNT;
+                    }
+                    return hasDecimalAmount ? decimalAmount.movePointRight(2).longValue() : amount;
+                }
+
+                protected List<Violation> collectAmountViolations(List<Violation> violations) {
+                    if (!hasAmount) {
+                        return violations;
+                    }
+                    if (hasDecimalAmount) {
+                        return checkDecimalAmount(violations, decimalAmount);
+                    }
+                    return checkAmount(violations, amount);
+                }
+
+                @Override
+                public ThaiQRPromptPay build() {
+                    return Builder.this.build();
+                }
+
+                @Override
+                public ValidationResult validate() {
+                    return Builder.this.validate(false);
+                }
+
+                @Override
+                public ValidationResult tryBuild() {
+                    return Builder.this.validate(true);
+                }
+            }
+
+            private class CreditTransferBuilder extends AmountBuilder implements CreditTransferBuilderIdentifier, CreditTransferBuilderAmount {
                 private String mobileNumber;
                 private String nationalId;
                 private String eWalletId;
-                private BigDecimal amount;
 
                 @Override
                 public CreditTransferBuilderAmount mobileNumber(String mobileNumber) {
-                    validateNumeric("Mobile Number", mobileNumber);
-                    validateLength("Mobile Number", mobileNumber, 10);
+                    check(checkMobileNumber(null, mobileNumber));
                     this.mobileNumber = mobileNumber;
                     return this;
                 }
@@ -330,8 +1292,7 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public CreditTransferBuilderAmount nationalId(String nationalId) {
-                    validateNumeric("National ID/Tax ID", nationalId);
-                    validateLength("National ID/Tax ID", nationalId, 13);
+                    check(checkNationalId(null, nationalId));
                     this.nationalId = nationalId;
                     return this;
                 }
@@ -344,8 +1305,7 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public CreditTransferBuilderAmount eWalletId(String eWalletId) {
-                    validateNumeric("E-Wallet ID", eWalletId);
-                    validateLength("E-Wallet ID", eWalletId, 15);
+                    check(checkEWalletId(null, eWalletId));
                     this.eWalletId = eWalletId;
                     return this;
                 }
@@ -357,29 +1317,38 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public BuildReady amount(BigDecimal amount) {
-                    validateLength("Amount", MONEY_FORMAT.format(amount), 13);
-                    validateAmount(amount);
-                    amount = amount.setScale(2, RoundingMode.DOWN);
-                    this.amount = amount;
+                    setAmount(amount);
                     return this;
                 }
 
                 /**
-                 * Construct ThaiQRPromptPay object
-                 * @return Returns an instance of ThaiQRPromptPay created from the fields set on this builder.
+                 * Specify amount in satang (1/100 of the currency unit), e.g. 10035 for 100.35
+                 * @param satang Transaction amount in satang
+                 * @return This builder.
                  */
                 @Override
-                public ThaiQRPromptPay build() {
-                    return new ThaiQRPromptPay(Builder.this);
+                public BuildReady amount(long satang) {
+                    setAmount(satang);
+                    return this;
+                }
+
+                @Override
+                public List<Violation> collectViolations(List<Violation> violations) {
+                    if (mobileNumber == null && nationalId == null && eWalletId == null) {
+                        violations = checkRequired(violations, "Mobile Number", null);
+                    }
+                    violations = checkMobileNumber(violations, mobileNumber);
+                    violations = checkNationalId(violations, nationalId);
+                    violations = checkEWalletId(violations, eWalletId);
+                    return collectAmountViolations(violations);
                 }
             }
 
-            private class BillPaymentBuilder implements SelectPromptPayType, BillPaymentBuilderBillerId, BillPaymentBuilderRef1, BillPaymentBuilderOptionalDetail {
+            private class BillPaymentBuilder extends AmountBuilder implements BillPaymentBuilderBillerId, BillPaymentBuilderRef1, BillPaymentBuilderOptionalDetail {
                 private String billerId;
                 private String ref1;
                 private String ref2;
                 private String ref3;
-                private BigDecimal amount;
 
                 /**
                  * Specify Tax ID (10 or 13 digits) + Suffix 2 digits
@@ -388,8 +1357,7 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public BillPaymentBuilderRef1 billerId(String billerId) {
-                    validateNumeric("Biller ID", billerId);
-                    validateLength("Biller ID", billerId, 15);
+                    check(checkBillerId(null, billerId));
                     this.billerId = billerId;
                     return this;
                 }
@@ -401,8 +1369,7 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public BillPaymentBuilderOptionalDetail ref1(String ref1) {
-                    validateAlphanumeric("Reference 1", ref1);
-                    validateLength("Reference 1", ref1, 15);
+                    check(checkRef1(null, ref1));
                     this.ref1 = ref1;
                     return this;
                 }
@@ -414,8 +1381,7 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public BillPaymentBuilderOptionalDetail ref2(String ref2) {
-                    validateAlphanumeric("Reference 2", ref2);
-                    validateLength("Reference 2", ref2, 20);
+                    check(checkRef2(null, ref2));
                     this.ref2 = ref2;
                     return this;
                 }
@@ -427,8 +1393,7 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public BillPaymentBuilderOptionalDetail ref3(String ref3) {
-                    validateAlphanumeric("Reference 3", ref3);
-                    validateLength("Terminal ID/Reference 3", ref3, 26);
+                    check(checkRef3(null, ref3));
                     this.ref3 = ref3;
                     return this;
                 }
@@ -440,24 +1405,32 @@ public class ThaiQRPromptPay {
                  */
                 @Override
                 public BillPaymentBuilderOptionalDetail amount(BigDecimal amount) {
-                    validateLength("Amount", MONEY_FORMAT.format(amount), 13);
-                    validateAmount(amount);
-                    amount = amount.setScale(2, RoundingMode.DOWN);
-                    this.amount = amount;
+                    setAmount(amount);
                     return this;
                 }
 
                 /**
-                 * Construct ThaiQRPromptPay object
-                 * @return Returns an instance of ThaiQRPromptPay created from the fields set on this builder.
+                 * Specify amount in satang (1/100 of the currency unit), e.g. 10035 for 100.35
+                 * @param satang Transaction amount in satang
+                 * @return This builder.
                  */
                 @Override
-                public ThaiQRPromptPay build() {
-                    return new ThaiQRPromptPay(Builder.this);
+                public BillPaymentBuilderOptionalDetail amount(long satang) {
+                    setAmount(satang);
+                    return this;
+                }
+
+                @Override
+                public List<Violation> collectViolations(List<Violation> violations) {
+                    violations = checkRequired(violations, "Biller ID", billerId);
+                    violations = checkBillerId(violations, billerId);
+                    violations = checkRequired(violations, "Reference 1", ref1);
+                    violations = checkRef1(violations, ref1);
+                    violations = checkRef2(violations, ref2);
+                    violations = checkRef3(violations, ref3);
+                    return collectAmountViolations(violations);
                 }
             }
         }
     }
-
-
-}
\ No newline at end of file
+}
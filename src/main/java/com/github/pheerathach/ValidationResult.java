@@ -0,0 +1,91 @@
+package com.github.pheerathach;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of validating a {@link ThaiQRPromptPay.Builder} without throwing.
+ * It carries every field violation found in a single pass and, when built through {@code tryBuild()},
+ * the constructed instance if there was none.
+ */
+public final class ValidationResult {
+
+    private final List<Violation> violations;
+    private final ThaiQRPromptPay value;
+
+    ValidationResult(List<Violation> violations, ThaiQRPromptPay value) {
+        this.violations = violations == null ? Collections.<Violation>emptyList() : Collections.unmodifiableList(violations);
+        this.value = value;
+    }
+
+    /**
+     * @return true if no field violated its rules.
+     */
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    /**
+     * @return All field violations in the order the fields were checked, empty if valid.
+     */
+    public List<Violation> getViolations() {
+        return violations;
+    }
+
+    /**
+     * Returns the constructed ThaiQRPromptPay object
+     *
+     * @return The instance built by {@code tryBuild()}, or null if this result came from {@code validate()}.
+     * @throws IllegalStateException with the message of the first violation if the builder was invalid.
+     */
+    public ThaiQRPromptPay get() {
+        if (!violations.isEmpty()) {
+            throw new IllegalStateException(violations.get(0).getMessage());
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "ValidationResult{valid}" : "ValidationResult" + violations;
+    }
+
+    public enum ErrorCode {
+        REQUIRED, NOT_NUMERIC, NOT_ALPHANUMERIC, TOO_LONG, NEGATIVE_AMOUNT, TOO_MANY_DECIMAL_PLACES
+    }
+
+    public static final class Violation {
+        private final String field;
+        private final ErrorCode code;
+        private final String message;
+
+        Violation(String field, ErrorCode code, String message) {
+            this.field = field;
+            this.code = code;
+            this.message = message;
+        }
+
+        /**
+         * @return The display name of the field, e.g. "Reference 1".
+         */
+        public String getField() {
+            return field;
+        }
+
+        public ErrorCode getCode() {
+            return code;
+        }
+
+        /**
+         * @return The same message the throwing builder methods use.
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return field + ": " + code;
+        }
+    }
+}
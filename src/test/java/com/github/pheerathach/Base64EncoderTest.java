@@ -0,0 +1,92 @@
+package com.github.pheerathach;
+
+import com.google.zxing.WriterException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+public class Base64EncoderTest {
+
+    private static ThaiQRPromptPay qr() {
+        return new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+    }
+
+    @Test
+    public void testEncodeEqualsJdkForAllTailLengths_thenSuccess() throws IOException {
+        Random random = new Random(7);
+        for (int length : new int[]{0, 1, 2, 3, 4, 5, 3071, 3072, 3073, 10000}) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            String expected = Base64.getEncoder().encodeToString(data);
+
+            StringBuilder builder = new StringBuilder();
+            Base64Encoder.encode(data, 0, data.length, builder);
+            Assert.assertEquals(expected, builder.toString());
+            Assert.assertEquals(expected.length(), Base64Encoder.encodedLength(length));
+
+            StringBuffer buffer = new StringBuffer();
+            try (Base64Encoder encoder = new Base64Encoder(buffer)) {
+                // Byte at a time and odd-sized slices must agree with one bulk write
+                int offset = 0;
+                while (offset < length) {
+                    int slice = Math.min(length - offset, 1 + random.nextInt(7));
+                    if (slice == 1) {
+                        encoder.write(data[offset]);
+                    } else {
+                        encoder.write(data, offset, slice);
+                    }
+                    offset += slice;
+                }
+            }
+            Assert.assertEquals(expected, buffer.toString());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (Base64Encoder encoder = new Base64Encoder(out)) {
+                encoder.write(data);
+            }
+            Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void testDrawToBase64Appendable_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay qr = qr();
+        String expected = Base64.getEncoder().encodeToString(qr.drawToByteArray(300, 300));
+        Assert.assertEquals(expected, qr.drawToBase64(300, 300));
+
+        StringWriter writer = new StringWriter();
+        qr.drawToBase64(300, 300, writer, false);
+        Assert.assertEquals(expected, writer.toString());
+
+        StringBuilder builder = new StringBuilder("<img src=\"");
+        qr.drawToBase64(300, 300, builder, true);
+        Assert.assertEquals("<img src=\"data:image/png;base64," + expected, builder.toString());
+    }
+
+    @Test
+    public void testDrawToBase64OutputStream_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay qr = qr();
+        String expected = "data:image/png;base64," + Base64.getEncoder().encodeToString(qr.drawToByteArray(300, 300));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        qr.drawToBase64(300, 300, out, true);
+        Assert.assertEquals(expected, new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDrawToBase64AppendableWithWidthLessThanZero_thenFailure() throws IOException, WriterException {
+        qr().drawToBase64(-10, 0, new StringBuilder(), true);
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.pheerathach;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+public class BulkGeneratorTest {
+
+    @Test
+    public void testGeneratePayloadLinesInInputOrder_thenSuccess() throws IOException, InterruptedException {
+        String csv = "billerId,ref1,ref2,amount\n"
+                + "0000000000001,1234,2345,100.35\n"
+                + "0000000000001,1234,,10.00\n"
+                + "0000000000001,12#4,,\n"
+                + "0000000000001,\"6300002\",,\n";
+        StringWriter writer = new StringWriter();
+        BulkGenerator generator = BulkGenerator.fromArguments("--workers", "2", "--queue", "1", "-");
+
+        int failures = generator.generate(new BufferedReader(new StringReader(csv)), writer, null);
+
+        String[] lines = writer.toString().split("\n", -1);
+        Assert.assertEquals(1, failures);
+        Assert.assertEquals(5, lines.length);
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().billPayment().billerId("0000000000001")
+                .ref1("1234").ref2("2345").amount(new BigDecimal("100.35")).build().generateContent(), lines[0]);
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().billPayment().billerId("0000000000001")
+                .ref1("1234").amount(new BigDecimal("10.00")).build().generateContent(), lines[1]);
+        Assert.assertEquals("", lines[2]);
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().billPayment().billerId("0000000000001")
+                .ref1("6300002").build().generateContent(), lines[3]);
+    }
+
+    @Test
+    public void testGenerateCreditTransfer_thenSuccess() throws IOException, InterruptedException {
+        String csv = "mobileNumber,nationalId,amount\n"
+                + "0812345678,,10.00\n"
+                + ",1234567890123,\n";
+        StringWriter writer = new StringWriter();
+
+        int failures = BulkGenerator.fromArguments("-").generate(new BufferedReader(new StringReader(csv)), writer, null);
+
+        String[] lines = writer.toString().split("\n", -1);
+        Assert.assertEquals(0, failures);
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678")
+                .amount(new BigDecimal("10.00")).build().generateContent(), lines[0]);
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().creditTransfer().nationalId("1234567890123")
+                .build().generateContent(), lines[1]);
+    }
+
+    @Test
+    public void testBlankBillerIdFailsAsBillPayment_thenFailure() throws IOException, InterruptedException {
+        String csv = "billerId,ref1,mobileNumber\n"
+                + ",1234,0812345678\n";
+        StringWriter writer = new StringWriter();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(errors, true));
+        int failures;
+        try {
+            failures = BulkGenerator.fromArguments("-").generate(new BufferedReader(new StringReader(csv)), writer, null);
+        } finally {
+            System.setErr(err);
+        }
+
+        Assert.assertEquals(1, failures);
+        Assert.assertEquals("\n", writer.toString());
+        Assert.assertTrue(errors.toString(), errors.toString().contains("Biller ID"));
+    }
+
+    @Test
+    public void testSplitQuotedTabSeparatedLine_thenSuccess() {
+        Assert.assertArrayEquals(new String[]{"a", "b\t\"c\"", ""},
+                BulkGenerator.split("a\t\"b\t\"\"c\"\"\"\t", '\t'));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPngFormatWithoutOutputDirectory_thenFailure() {
+        BulkGenerator.fromArguments("--format", "png", "rows.csv");
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.pheerathach;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class Crc16Test {
+
+    private static final byte[] CHECK_INPUT = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    // Reference bitwise implementation the table-driven engine must agree with
+    private static int bitwiseCrc16(byte[] buffer) {
+        int crc = 0xFFFF;
+        for (byte b : buffer) {
+            crc = ((crc >>> 8) | (crc << 8)) & 0xffff;
+            crc ^= (b & 0xff);
+            crc ^= ((crc & 0xff) >> 4);
+            crc ^= (crc << 12) & 0xffff;
+            crc ^= ((crc & 0xFF) << 5) & 0xffff;
+        }
+        return crc & 0xffff;
+    }
+
+    @Test
+    public void testCheckValue_thenSuccess() {
+        Assert.assertEquals(0x29B1, Helper.crc16(CHECK_INPUT, 0, CHECK_INPUT.length));
+        Assert.assertEquals("29B1", Helper.crc16(CHECK_INPUT));
+    }
+
+    @Test
+    public void testTableDrivenEqualsBitwiseForAllSingleBytes_thenSuccess() {
+        for (int i = 0; i < 256; i++) {
+            byte[] buffer = {(byte) i, (byte) (255 - i)};
+            Assert.assertEquals(bitwiseCrc16(buffer), Helper.crc16(buffer, 0, buffer.length));
+        }
+    }
+
+    @Test
+    public void testIncrementalUpdateEqualsOneShot_thenSuccess() {
+        int crc = Crc16.update(Crc16.INITIAL_VALUE, CHECK_INPUT, 0, 3);
+        crc = Crc16.update(crc, CHECK_INPUT[3]);
+        crc = Crc16.update(crc, "56789", 0, 5);
+        Assert.assertEquals(0x29B1, crc);
+    }
+
+    @Test
+    public void testWriteHexPadsWithLeadingZeros_thenSuccess() {
+        byte[] bytes = new byte[6];
+        char[] chars = new char[4];
+        Assert.assertEquals(6, Crc16.writeHex(0x0A3, bytes, 2));
+        Assert.assertEquals(4, Crc16.writeHex(0x0A3, chars, 0));
+        Assert.assertEquals("00A3", new String(bytes, 2, 4, StandardCharsets.US_ASCII));
+        Assert.assertEquals("00A3", new String(chars));
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.pheerathach;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+public class MatrixEncoderTest {
+
+    private static final String[] CONTENTS = {
+            ThaiQRPromptPay.creditTransferMobile("0812345678", 10025L, true).generateContent(),
+            ThaiQRPromptPay.billPayment("010555012345601", "INV0001", null, null, 150000L, true).generateContent(),
+            ThaiQRPromptPay.billPayment("010555012345601", "INV2024000123", "CUST00042", "TERM01", 123450L, true).generateContent(),
+            new ThaiQRPromptPay.Builder().bot().billPayment().billerId("000000000000099").ref1("15123141").build().generateContent(),
+            "00020101021230570016a000000677010112011501055501234560102inv00015802TH",
+            "1234567890",
+            "A",
+    };
+
+    private static void assertSameAsZxing(String content, EncodingProfile profile) throws WriterException {
+        QrMatrix expected = QrEncoder.toMatrix(QrEncoder.encode(content, profile), profile.getMargin(), 1);
+        QrMatrix actual = MatrixEncoder.encode(content, profile, 1);
+        String message = content + " " + profile;
+        Assert.assertEquals(message, expected.getVersion(), actual.getVersion());
+        Assert.assertEquals(message, expected.toBitMatrix(0, 0), actual.toBitMatrix(0, 0));
+    }
+
+    private static String decode(QrMatrix matrix) throws NotFoundException, ChecksumException, FormatException {
+        BufferedImageLuminanceSource source = new BufferedImageLuminanceSource(MatrixToImageWriter.toBufferedImage(matrix.toBitMatrix(400, 400)));
+        // Rendered images are pure, so skip looking for the code in a photo
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
+        return new QRCodeReader().decode(new BinaryBitmap(new HybridBinarizer(source)), hints).getText();
+    }
+
+    @Test
+    public void testPenaltyMatchesZxing_thenSuccess() throws WriterException {
+        for (String content : CONTENTS) {
+            for (ErrorCorrectionLevel ecLevel : ErrorCorrectionLevel.values()) {
+                assertSameAsZxing(content, new EncodingProfile.Builder().errorCorrection(ecLevel).build());
+            }
+        }
+    }
+
+    @Test
+    public void testPenaltyMatchesZxingWithVersionAndCharset_thenSuccess() throws WriterException {
+        for (String content : CONTENTS) {
+            for (int version : new int[]{7, 10, 27, 40}) {
+                assertSameAsZxing(content, new EncodingProfile.Builder().version(version).build());
+            }
+            assertSameAsZxing(content, new EncodingProfile.Builder().minVersion(5).errorCorrection(ErrorCorrectionLevel.H).build());
+            assertSameAsZxing(content, new EncodingProfile.Builder().charset(StandardCharsets.UTF_8).margin(0).build());
+        }
+    }
+
+    @Test
+    public void testEveryVersionMatchesZxing_thenSuccess() throws WriterException {
+        // Every layout, block structure and number of error correction codewords
+        for (int version = EncodingProfile.MIN_VERSION; version <= EncodingProfile.MAX_VERSION; version++) {
+            for (ErrorCorrectionLevel ecLevel : ErrorCorrectionLevel.values()) {
+                assertSameAsZxing("pp|123", new EncodingProfile.Builder().errorCorrection(ecLevel).version(version).build());
+            }
+        }
+    }
+
+    @Test
+    public void testRandomContentMatchesZxing_thenSuccess() throws WriterException {
+        Random random = new Random(25);
+        String[] alphabets = {"0123456789", "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:", "0123456789ABCabc|.-_ !?"};
+        // Bytes that fit version 40 at each level
+        int[] maxLengths = {2953, 2331, 1663, 1273};
+        ErrorCorrectionLevel[] ecLevels = {ErrorCorrectionLevel.L, ErrorCorrectionLevel.M, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.H};
+        for (int i = 0; i < 120; i++) {
+            int level = i % ecLevels.length;
+            String alphabet = alphabets[i % alphabets.length];
+            // Mostly payment sized contents, some up to the largest version
+            int length = 1 + random.nextInt(i % 5 == 0 ? maxLengths[level] : 300);
+            StringBuilder content = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                content.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertSameAsZxing(content.toString(), new EncodingProfile.Builder().errorCorrection(ecLevels[level]).build());
+        }
+    }
+
+    @Test
+    public void testBytesMatchString_thenSuccess() throws WriterException {
+        EncodingProfile[] profiles = {
+                EncodingProfile.DEFAULT,
+                new EncodingProfile.Builder().charset(StandardCharsets.UTF_8).build(),
+                new EncodingProfile.Builder().charset(StandardCharsets.UTF_16BE).build(),
+                new EncodingProfile.Builder().maskSelection(EncodingProfile.MaskSelection.FAST).build(),
+        };
+        for (String content : CONTENTS) {
+            for (EncodingProfile profile : profiles) {
+                Assert.assertEquals(MatrixEncoder.encode(content, profile, 1).toBitMatrix(0, 0),
+                        MatrixEncoder.encode(content.getBytes(StandardCharsets.US_ASCII), profile, 1).toBitMatrix(0, 0));
+            }
+        }
+        // Not ASCII, so encoded as the String decoded from the bytes
+        byte[] notAscii = {'A', (byte) 0xE0, 'b'};
+        Assert.assertEquals(MatrixEncoder.encode(new String(notAscii, StandardCharsets.US_ASCII), EncodingProfile.DEFAULT, 1).toBitMatrix(0, 0),
+                MatrixEncoder.encode(notAscii, EncodingProfile.DEFAULT, 1).toBitMatrix(0, 0));
+    }
+
+    @Test
+    public void testQrMatchesZxing_thenSuccess() throws WriterException {
+        ThaiQRPromptPay[] qrs = {
+                ThaiQRPromptPay.creditTransferMobile("0812345678", 10025L, true),
+                ThaiQRPromptPay.creditTransferNationalId("1234567890123", ThaiQRPromptPay.NO_AMOUNT, false),
+                ThaiQRPromptPay.billPayment("010555012345601", "INV2024000123", "CUST00042", "TERM01", 123450L, true),
+                new ThaiQRPromptPay.Builder().bot().billPayment().billerId("000000000000099").ref1("15123141").ref2("3654112").amount(new BigDecimal("200.00")).build(),
+        };
+        for (ThaiQRPromptPay qr : qrs) {
+            QrMatrix expected = QrEncoder.toMatrix(QrEncoder.encode(qr.generateContent()), 4, 1);
+            Assert.assertEquals(expected.toBitMatrix(0, 0), qr.toMatrix().toBitMatrix(0, 0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyContent_thenFailure() throws WriterException {
+        MatrixEncoder.encode(new byte[0], EncodingProfile.DEFAULT, 1);
+    }
+
+    @Test
+    public void testFastMaskDecodes_thenSuccess() throws Exception {
+        EncodingProfile fast = new EncodingProfile.Builder().maskSelection(EncodingProfile.MaskSelection.FAST).build();
+        for (String content : CONTENTS) {
+            QrMatrix matrix = MatrixEncoder.encode(content, fast, 1);
+            Assert.assertEquals(QrEncoder.encode(content).getVersion().getVersionNumber(), matrix.getVersion());
+            Assert.assertEquals(content, decode(matrix));
+        }
+    }
+
+    @Test
+    public void testEveryFixedMaskDecodes_thenSuccess() throws Exception {
+        for (int mask = 0; mask < 8; mask++) {
+            for (ErrorCorrectionLevel ecLevel : ErrorCorrectionLevel.values()) {
+                EncodingProfile profile = new EncodingProfile.Builder().errorCorrection(ecLevel).maskPattern(mask).build();
+                for (String content : CONTENTS) {
+                    Assert.assertEquals(content, decode(MatrixEncoder.encode(content, profile, 1)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDrawWithFastMask_thenSuccess() throws Exception {
+        ThaiQRPromptPay qr = ThaiQRPromptPay.billPayment("010555012345601", "INV0001", null, null, 150000L, true);
+        EncodingProfile fast = new EncodingProfile.Builder().maskSelection(EncodingProfile.MaskSelection.FAST).build();
+
+        Assert.assertEquals(qr.generateContent(), decode(qr.toMatrix(fast)));
+        Assert.assertArrayEquals(qr.toMatrix(fast).drawToByteArray(300, 300), qr.drawToByteArray(300, 300, fast));
+    }
+
+    @Test(expected = WriterException.class)
+    public void testContentDoesNotFitVersion_thenFailure() throws WriterException {
+        MatrixEncoder.encode(CONTENTS[2], new EncodingProfile.Builder().version(3).maskPattern(0).build(), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaskPatternOutOfRange_thenFailure() {
+        new EncodingProfile.Builder().maskPattern(8);
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.pheerathach;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+public class PngEncoderTest {
+
+    private static final String CONTENT = "00020101021129370016A000000677010111011300668123456785802TH53037645406100.2563047C8C";
+
+    private static BufferedImage encodeAndDecode(BitMatrix matrix, int compressionLevel) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = PngEncoder.get(compressionLevel).encode(matrix, out);
+        Assert.assertEquals(out.size(), written);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertNotNull(image);
+        return image;
+    }
+
+    private static void assertPixelsEqual(BitMatrix matrix, BufferedImage image) {
+        Assert.assertEquals(matrix.getWidth(), image.getWidth());
+        Assert.assertEquals(matrix.getHeight(), image.getHeight());
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                int expected = matrix.get(x, y) ? 0xFF000000 : 0xFFFFFFFF;
+                Assert.assertEquals("pixel " + x + "," + y, expected, image.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeQRMatchesBitMatrix_thenSuccess() throws IOException, WriterException {
+        for (int size : new int[]{10, 99, 200, 401}) {
+            BitMatrix matrix = new QRCodeWriter().encode(CONTENT, BarcodeFormat.QR_CODE, size, size);
+            assertPixelsEqual(matrix, encodeAndDecode(matrix, PngEncoder.DEFAULT_COMPRESSION_LEVEL));
+        }
+    }
+
+    @Test
+    public void testEncodeAllCompressionLevels_thenSuccess() throws IOException, WriterException {
+        BitMatrix matrix = new QRCodeWriter().encode(CONTENT, BarcodeFormat.QR_CODE, 300, 300);
+        for (int level = -1; level <= 9; level++) {
+            assertPixelsEqual(matrix, encodeAndDecode(matrix, level));
+        }
+    }
+
+    @Test
+    public void testEncodeNonSquareAndNoise_thenSuccess() throws IOException {
+        BitMatrix matrix = new BitMatrix(1037, 23);
+        long seed = 42;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                if (seed < 0) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+        // Uncompressed noise spans several IDAT chunks
+        assertPixelsEqual(matrix, encodeAndDecode(matrix, 0));
+        assertPixelsEqual(matrix, encodeAndDecode(matrix, 9));
+    }
+
+    @Test
+    public void testEncodeAfterWiderImage_thenSuccess() throws Exception {
+        final BitMatrix qr = new QRCodeWriter().encode(CONTENT, BarcodeFormat.QR_CODE, 200, 200);
+        final BitMatrix wide = new BitMatrix(1037, 2);
+        for (int x = 0; x < wide.getWidth(); x += 3) {
+            wide.set(x, 0);
+        }
+        final byte[][] images = new byte[2][];
+        // A fresh thread, so its encoder starts with buffers sized for the QR
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    PngEncoder.get(PngEncoder.DEFAULT_COMPRESSION_LEVEL).encode(qr, out);
+                    images[0] = out.toByteArray();
+                    PngEncoder.get(PngEncoder.DEFAULT_COMPRESSION_LEVEL).encode(wide, new ByteArrayOutputStream());
+                    out.reset();
+                    PngEncoder.get(PngEncoder.DEFAULT_COMPRESSION_LEVEL).encode(qr, out);
+                    images[1] = out.toByteArray();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+
+        // Leftover bytes of the wider rows must not stop repeated rows from being filtered as Up
+        Assert.assertArrayEquals(images[0], images[1]);
+    }
+
+    @Test
+    public void testDrawWithCompressionLevel_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay fastest = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+        ThaiQRPromptPay smallest = new ThaiQRPromptPay.Builder()
+                .pngCompressionLevel(9)
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+
+        BitMatrix matrix = new QRCodeWriter().encode(fastest.generateContent(), BarcodeFormat.QR_CODE, 400, 400);
+        assertPixelsEqual(matrix, ImageIO.read(new ByteArrayInputStream(fastest.drawToByteArray(400, 400))));
+        assertPixelsEqual(matrix, ImageIO.read(new ByteArrayInputStream(smallest.drawToByteArray(400, 400))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompressionLevelOutOfRange_thenFailure() {
+        new ThaiQRPromptPay.Builder().pngCompressionLevel(10);
+    }
+}
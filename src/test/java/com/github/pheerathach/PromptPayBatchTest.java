@@ -0,0 +1,150 @@
+package com.github.pheerathach;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PromptPayBatchTest {
+
+    private static final String[] BILLER_IDS = {"0000000000001", "0000000000001", "00000000000A1", "000000000000099", "0000000000001"};
+    private static final String[] REF1S = {"1234", "6300002", "1234", "15123141", "12#4"};
+    private static final String[] REF2S = {"2345", null, null, "3654112", null};
+    private static final String[] REF3S = {"67890", null, null, null, null};
+    private static final long[] AMOUNTS = {10035L, ThaiQRPromptPay.NO_AMOUNT, 100L, 20000L, 100L};
+
+    private static String expected(int row) {
+        ThaiQRPromptPay.Builder.BillPaymentBuilderOptionalDetail builder = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId(BILLER_IDS[row])
+                .ref1(REF1S[row]);
+        if (REF2S[row] != null) {
+            builder.ref2(REF2S[row]);
+        }
+        if (REF3S[row] != null) {
+            builder.ref3(REF3S[row]);
+        }
+        if (AMOUNTS[row] != ThaiQRPromptPay.NO_AMOUNT) {
+            builder.amount(AMOUNTS[row]);
+        }
+        return builder.build().generateContent();
+    }
+
+    private static void assertResult(PromptPayBatch.Result result) {
+        Assert.assertEquals(5, result.size());
+        Assert.assertEquals(2, result.getFailureCount());
+        Assert.assertEquals(expected(0), result.getContent(0));
+        Assert.assertEquals(expected(1), result.getContent(1));
+        Assert.assertEquals(expected(3), result.getContent(3));
+        Assert.assertEquals(ValidationResult.ErrorCode.NOT_NUMERIC, result.getFailures()[2].getCode());
+        Assert.assertEquals("Reference 1", result.getFailures()[4].getField());
+        Assert.assertNull(result.getContent(2));
+        Assert.assertEquals(0, result.length(4));
+        Assert.assertEquals(result.getBuffer().length, result.getOffsets()[5]);
+    }
+
+    @After
+    public void tearDown() {
+        PromptPayInstrumentation.setListener(null);
+    }
+
+    @Test
+    public void testGenerateOnForkJoinPool_thenSuccess() {
+        assertResult(PromptPayBatch.dynamicQR().chunkSize(2)
+                .generate(BILLER_IDS, REF1S, REF2S, REF3S, AMOUNTS, new ForkJoinPool(3)));
+    }
+
+    @Test
+    public void testGenerateOnExecutor_thenSuccess() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertResult(PromptPayBatch.dynamicQR().chunkSize(1)
+                    .generate(BILLER_IDS, REF1S, REF2S, REF3S, AMOUNTS, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testGenerateWithoutOptionalColumns_thenSuccess() {
+        PromptPayBatch.Result result = PromptPayBatch.staticQR()
+                .generate(new String[]{"0000000000001"}, new String[]{"1234"}, null, null, null);
+
+        String expected = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("1234")
+                .build()
+                .generateContent();
+        Assert.assertEquals(expected, result.getContent(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerateWithMismatchedColumns_thenFailure() {
+        PromptPayBatch.dynamicQR().generate(BILLER_IDS, new String[]{"1234"}, null, null, null);
+    }
+
+    @Test
+    public void testInvalidBillerIdCompilesOnce_thenSuccess() throws InterruptedException {
+        PromptPayMetrics metrics = new PromptPayMetrics();
+        PromptPayInstrumentation.setListener(metrics);
+        String[] billerIds = {"00000000000A1", "00000000000A1", "00000000000A1"};
+        String[] ref1s = {"1234", "2345", "3456"};
+
+        PromptPayBatch.Result result = PromptPayBatch.dynamicQR().chunkSize(1)
+                .generate(billerIds, ref1s, null, null, null, new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        command.run();
+                    }
+                });
+
+        Assert.assertEquals(3, result.getFailureCount());
+        Assert.assertEquals(ValidationResult.ErrorCode.NOT_NUMERIC, result.getFailures()[2].getCode());
+        Assert.assertEquals(1, metrics.getValidationCount());
+    }
+
+    @Test
+    public void testGenerateOnRejectingExecutor_thenFailure() throws InterruptedException {
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        final AtomicInteger submitted = new AtomicInteger();
+        final AtomicInteger started = new AtomicInteger();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                if (submitted.incrementAndGet() > 2) {
+                    throw new RejectedExecutionException("Queue is full.");
+                }
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(50L);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        // Counted before the chunk can count down the latch the caller waits on
+                        started.incrementAndGet();
+                        command.run();
+                    }
+                });
+            }
+        };
+        try {
+            PromptPayBatch.dynamicQR().chunkSize(1).generate(BILLER_IDS, REF1S, REF2S, REF3S, AMOUNTS, executor);
+            Assert.fail("Expected the rejection to reach the caller.");
+        } catch (RejectedExecutionException e) {
+            Assert.assertEquals(2, started.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.pheerathach;
+
+import com.google.zxing.WriterException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PromptPayMetricsTest {
+
+    @After
+    public void tearDown() {
+        PromptPayInstrumentation.setListener(null);
+    }
+
+    @Test
+    public void testStagesAreRecorded_thenSuccess() throws IOException, WriterException {
+        PromptPayMetrics metrics = new PromptPayMetrics();
+        PromptPayInstrumentation.setListener(metrics);
+
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678").build();
+        ThaiQRPromptPay.billPayment("000000000000099", "15123141", null, null, 100L, true);
+        String content = qr.generateContent();
+        qr.generateContent();
+        byte[] image = qr.drawToByteArray(200, 200);
+
+        Assert.assertEquals(2, metrics.getValidationCount());
+        Assert.assertEquals(1, metrics.getContentCount());
+        Assert.assertEquals(1, metrics.getQrEncodeCount());
+        Assert.assertEquals(1, metrics.getImageWriteCount());
+        Assert.assertTrue(metrics.getImageWriteTotalNanos() > 0);
+        Assert.assertTrue(metrics.getImageWriteMaxNanos() <= metrics.getImageWriteTotalNanos());
+
+        int lengthBucket = 64 - Long.numberOfLeadingZeros(content.length());
+        Assert.assertEquals(1, metrics.getPayloadLengthHistogram()[lengthBucket]);
+        Assert.assertEquals(1, metrics.getQrVersionHistogram()[QrEncoder.encode(content).getVersion().getVersionNumber()]);
+        Assert.assertEquals(1, metrics.getImageSizeHistogram()[64 - Long.numberOfLeadingZeros(image.length)]);
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getValidationCount());
+        Assert.assertEquals(0, metrics.getImageWriteMaxNanos());
+    }
+
+    @Test
+    public void testNothingIsRecordedWithoutListener_thenSuccess() throws IOException, WriterException {
+        PromptPayMetrics metrics = new PromptPayMetrics();
+        PromptPayInstrumentation.setListener(metrics);
+        PromptPayInstrumentation.setListener(null);
+
+        new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678").build().drawToByteArray(100, 100);
+        Assert.assertNull(PromptPayInstrumentation.getListener());
+        Assert.assertEquals(0, metrics.getValidationCount());
+        Assert.assertEquals(0, metrics.getImageWriteCount());
+    }
+
+    @Test
+    public void testMBean_thenSuccess() throws IOException, WriterException, JMException {
+        PromptPayMetrics metrics = new PromptPayMetrics();
+        PromptPayInstrumentation.setListener(metrics);
+        metrics.registerMBean();
+        try {
+            new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678").build().drawToByteArray(100, 100);
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(PromptPayMetrics.OBJECT_NAME);
+            Assert.assertEquals(1L, server.getAttribute(name, "ImageWriteCount"));
+            Assert.assertEquals(41, ((long[]) server.getAttribute(name, "QrVersionHistogram")).length);
+        } finally {
+            metrics.unregisterMBean();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(PromptPayMetrics.OBJECT_NAME)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRegisterMBeanTwice_thenFailure() {
+        PromptPayMetrics metrics = new PromptPayMetrics();
+        metrics.registerMBean();
+        try {
+            new PromptPayMetrics().registerMBean();
+        } finally {
+            metrics.unregisterMBean();
+        }
+    }
+
+    @Test
+    public void testListenerSeesStagesInOrder_thenSuccess() throws IOException, WriterException {
+        final List<String> calls = new ArrayList<>();
+        PromptPayInstrumentation.setListener(new PromptPayListener() {
+            @Override
+            public void onStageStarted(Stage stage) {
+                calls.add(stage.name());
+            }
+
+            @Override
+            public void onValidated(long nanos) {
+                calls.add("validated");
+            }
+
+            @Override
+            public void onContentGenerated(ThaiQRPromptPay.OutputType outputType, int payloadLength, long nanos) {
+                calls.add("content " + outputType + " " + payloadLength);
+            }
+
+            @Override
+            public void onQrEncoded(int version, int width, int height, long nanos) {
+                calls.add("encoded " + width + "x" + height);
+            }
+
+            @Override
+            public void onImageWritten(int width, int height, int imageBytes, long nanos) {
+                calls.add("written " + width + "x" + height);
+            }
+        });
+
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder().bot().billPayment().billerId("000000000000099").ref1("15123141").build();
+        qr.drawToByteArray(150, 150);
+
+        Assert.assertEquals(Arrays.asList("VALIDATION", "validated", "CONTENT", "content BOT3 " + qr.contentLength(),
+                "QR_ENCODE", "encoded 150x150", "IMAGE_WRITE", "written 150x150"), calls);
+    }
+}
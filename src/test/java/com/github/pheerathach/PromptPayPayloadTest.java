@@ -0,0 +1,165 @@
+package com.github.pheerathach;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+public class PromptPayPayloadTest {
+
+    private static String withCrc(String payloadWithoutCrc) {
+        String content = payloadWithoutCrc + "6304";
+        return content + Helper.crc16(content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void assertContent(String expected, CharSequence actual) {
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected, actual.toString());
+    }
+
+    @Test
+    public void testParseCreditTransferMobileNumber_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+
+        PromptPayPayload payload = ThaiQRPromptPay.parse(qr.generateContent());
+        Assert.assertEquals(ThaiQRPromptPay.OutputType.PROMPTPAY, payload.getOutputType());
+        Assert.assertTrue(payload.isDynamic());
+        Assert.assertEquals(PromptPayPayload.ProxyType.MOBILE_NUMBER, payload.getProxyType());
+        assertContent("0066812345678", payload.getProxy());
+        Assert.assertEquals("0812345678", payload.getMobileNumber());
+        Assert.assertNull(payload.getNationalId());
+        Assert.assertNull(payload.getBillerId());
+        Assert.assertNull(payload.getRef1());
+        Assert.assertEquals(10025L, payload.getAmountSatang());
+        Assert.assertEquals(new BigDecimal("100.25"), payload.getAmount());
+        assertContent("764", payload.getCurrencyCode());
+        assertContent("TH", payload.getCountryCode());
+        Assert.assertEquals(qr.generateContent(), payload.toString());
+    }
+
+    @Test
+    public void testParseCreditTransferNationalIdAndEWalletWithoutAmount_thenSuccess() {
+        PromptPayPayload nationalId = ThaiQRPromptPay.parse(new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .nationalId("1234567890123")
+                .build()
+                .generateContent());
+        Assert.assertFalse(nationalId.isDynamic());
+        Assert.assertEquals(PromptPayPayload.ProxyType.NATIONAL_ID, nationalId.getProxyType());
+        assertContent("1234567890123", nationalId.getNationalId());
+        Assert.assertNull(nationalId.getMobileNumber());
+        Assert.assertFalse(nationalId.hasAmount());
+        Assert.assertEquals(ThaiQRPromptPay.NO_AMOUNT, nationalId.getAmountSatang());
+        Assert.assertNull(nationalId.getAmount());
+
+        PromptPayPayload eWallet = ThaiQRPromptPay.parse(new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .eWalletId("123456789012345")
+                .amount(1L)
+                .build()
+                .generateContent());
+        Assert.assertEquals(PromptPayPayload.ProxyType.E_WALLET_ID, eWallet.getProxyType());
+        assertContent("123456789012345", eWallet.getEWalletId());
+        Assert.assertEquals(1L, eWallet.getAmountSatang());
+    }
+
+    @Test
+    public void testParseBillPaymentBytes_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("000000000000099")
+                .ref1("15123141")
+                .ref2("3654112")
+                .ref3("ABCD")
+                .amount(new BigDecimal("200.00"))
+                .build();
+        byte[] content = new byte[qr.contentLength() + 5];
+        qr.generateContentInto(content, 5);
+
+        PromptPayPayload payload = ThaiQRPromptPay.parse(content, 5, qr.contentLength());
+        Assert.assertEquals(PromptPayPayload.ProxyType.BILLER_ID, payload.getProxyType());
+        assertContent("000000000000099", payload.getBillerId());
+        assertContent("15123141", payload.getRef1());
+        assertContent("3654112", payload.getRef2());
+        assertContent("ABCD", payload.getRef3());
+        Assert.assertEquals(20000L, payload.getAmountSatang());
+        Assert.assertEquals(qr.generateContent(), payload.toString());
+    }
+
+    @Test
+    public void testParseBOT_thenSuccess() {
+        PromptPayPayload payload = ThaiQRPromptPay.parse(new ThaiQRPromptPay.Builder()
+                .bot()
+                .billPayment()
+                .billerId("000000000000099")
+                .ref1("15123141")
+                .ref2("3654112")
+                .amount(new BigDecimal("12.34"))
+                .build()
+                .generateContent());
+        Assert.assertEquals(ThaiQRPromptPay.OutputType.BOT3, payload.getOutputType());
+        assertContent("000000000000099", payload.getBillerId());
+        assertContent("15123141", payload.getRef1());
+        assertContent("3654112", payload.getRef2());
+        Assert.assertEquals(1234L, payload.getAmountSatang());
+        Assert.assertNull(payload.getCurrencyCode());
+
+        PromptPayPayload withoutRef2 = ThaiQRPromptPay.parse("|000000000000099\n15123141\n\n0".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertNull(withoutRef2.getRef2());
+        Assert.assertEquals(0L, withoutRef2.getAmountSatang());
+    }
+
+    private static final String WITH_OTHER_TAGS = withCrc("000201010211" + "2937" + "0016A000000677010111"
+            + "01130066812345678" + "52045999" + "5303764" + "54031.5" + "5802TH" + "5905SHOP1" + "6215" + "0203ABC"
+            + "0704T001");
+
+    @Test
+    public void testParseSkipsOtherTags_thenSuccess() {
+        PromptPayPayload payload = ThaiQRPromptPay.parse(WITH_OTHER_TAGS);
+        Assert.assertEquals("0812345678", payload.getMobileNumber());
+        Assert.assertEquals(150L, payload.getAmountSatang());
+        assertContent("T001", payload.getRef3());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseLowerCaseCrc_thenFailure() {
+        String crc = WITH_OTHER_TAGS.substring(WITH_OTHER_TAGS.length() - 4);
+        Assert.assertNotEquals(crc, crc.toLowerCase());
+        ThaiQRPromptPay.parse(WITH_OTHER_TAGS.substring(0, WITH_OTHER_TAGS.length() - 4) + crc.toLowerCase());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseWrongCrc_thenFailure() {
+        String content = new ThaiQRPromptPay.Builder().staticQR().creditTransfer().mobileNumber("0812345678").build().generateContent();
+        ThaiQRPromptPay.parse(content.replace("0066812345678", "0066812345679"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseFieldLongerThanPayload_thenFailure() {
+        ThaiQRPromptPay.parse(withCrc("000201010211" + "2999" + "0016A000000677010111"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseWithoutPromptPayMerchant_thenFailure() {
+        ThaiQRPromptPay.parse(withCrc("000201010211" + "2937" + "0016A000000999999999" + "01130066812345678" + "5802TH"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseTooManyDecimalPlaces_thenFailure() {
+        ThaiQRPromptPay.parse(withCrc("000201010211" + "2937" + "0016A000000677010111" + "01130066812345678" + "54051.234"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseTruncatedBOT_thenFailure() {
+        ThaiQRPromptPay.parse("|000000000000099\n15123141");
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.pheerathach;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+public class PromptPayTemplateTest {
+
+    private static PromptPayTemplate billPaymentTemplate() {
+        return PromptPayTemplate.compile(new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("X"));
+    }
+
+    @Test
+    public void testBillPaymentRenderEqualsGenerateContent_thenSuccess() {
+        PromptPayTemplate template = billPaymentTemplate();
+
+        String expected = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("1234")
+                .ref2("2345")
+                .ref3("67890")
+                .amount(new BigDecimal("100.35"))
+                .build()
+                .generateContent();
+        Assert.assertEquals(expected, template.render(10035L, "1234", "2345", "67890"));
+    }
+
+    @Test
+    public void testBillPaymentRenderWithoutOptionalFieldsEqualsGenerateContent_thenSuccess() {
+        PromptPayTemplate template = billPaymentTemplate();
+
+        String expected = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("6300002")
+                .build()
+                .generateContent();
+        Assert.assertEquals(expected, template.render(PromptPayTemplate.NO_AMOUNT, "6300002", null, null));
+    }
+
+    @Test
+    public void testRenderIntoByteArrayAtOffset_thenSuccess() {
+        PromptPayTemplate template = billPaymentTemplate();
+
+        byte[] buffer = new byte[200];
+        int written = template.render(1L, "AB12", null, "T1", buffer, 7);
+        Assert.assertEquals(template.length(1L, "AB12", null, "T1"), written);
+        Assert.assertEquals(template.render(1L, "AB12", null, "T1"), new String(buffer, 7, written, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testCreditTransferRenderEqualsGenerateContent_thenSuccess() {
+        PromptPayTemplate template = PromptPayTemplate.compile(new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("5.00")));
+
+        String expected = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("136.25"))
+                .build()
+                .generateContent();
+        Assert.assertEquals(expected, template.render(13625L, null, null, null));
+    }
+
+    @Test
+    public void testBotRenderEqualsGenerateContent_thenSuccess() {
+        PromptPayTemplate template = PromptPayTemplate.compile(new ThaiQRPromptPay.Builder()
+                .bot()
+                .billPayment()
+                .billerId("000000000009132")
+                .ref1("X")
+                .build());
+
+        String expected = new ThaiQRPromptPay.Builder()
+                .bot()
+                .billPayment()
+                .billerId("000000000009132")
+                .ref1("321312312")
+                .ref2("432542353245")
+                .amount(new BigDecimal("11.00"))
+                .build()
+                .generateContent();
+        Assert.assertEquals(expected, template.render(1100L, "321312312", "432542353245", null));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreditTransferRenderWithReference_thenFailure() {
+        PromptPayTemplate template = PromptPayTemplate.compile(new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .nationalId("1234567890123"));
+
+        template.render(100L, "1234", null, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBillPaymentRenderWithInvalidReference_thenFailure() {
+        billPaymentTemplate().render(100L, "12#4", null, null);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testRenderIntoByteArrayTooSmall_thenFailure() {
+        billPaymentTemplate().render(100L, "1234", null, null, new byte[20], 0);
+    }
+}
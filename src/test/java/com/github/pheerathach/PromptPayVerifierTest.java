@@ -0,0 +1,143 @@
+package com.github.pheerathach;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+public class PromptPayVerifierTest {
+
+    private static final String CREDIT_TRANSFER = new ThaiQRPromptPay.Builder().staticQR().creditTransfer()
+            .mobileNumber("0812345678").amount(new BigDecimal("100.25")).build().generateContent();
+    private static final String BILL_PAYMENT = new ThaiQRPromptPay.Builder().dynamicQR().billPayment()
+            .billerId("000000000000099").ref1("15123141").ref2("3654112").ref3("ABCD").build().generateContent();
+    private static final String BOT = new ThaiQRPromptPay.Builder().bot().billPayment()
+            .billerId("000000000000099").ref1("15123141").build().generateContent();
+
+    private static int[] offsets;
+
+    private static byte[] concat(String... payloads) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        offsets = new int[payloads.length + 1];
+        for (int i = 0; i < payloads.length; i++) {
+            byte[] payload = payloads[i].getBytes(StandardCharsets.US_ASCII);
+            buffer.write(payload, 0, payload.length);
+            offsets[i + 1] = offsets[i] + payload.length;
+        }
+        return buffer.toByteArray();
+    }
+
+    private static String tamper(String payload) {
+        char[] chars = payload.toCharArray();
+        chars[30] = chars[30] == '1' ? '2' : '1';
+        return new String(chars);
+    }
+
+    private static String withCrc(String payloadWithoutCrc) {
+        String content = payloadWithoutCrc + "6304";
+        return content + Helper.crc16(content.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testVerifyMixedRows_thenSuccess() {
+        String[] payloads = {
+                CREDIT_TRANSFER, BILL_PAYMENT, tamper(BILL_PAYMENT), BOT,
+                CREDIT_TRANSFER.substring(0, CREDIT_TRANSFER.length() - 8), "", BILL_PAYMENT, tamper(CREDIT_TRANSFER),
+                withCrc("000201010211"), "|000000000000099\nX", CREDIT_TRANSFER
+        };
+        byte[] buffer = concat(payloads);
+
+        for (int chunkSize : new int[]{1, 3, 4096}) {
+            PromptPayVerifier.Result result = new PromptPayVerifier().chunkSize(chunkSize)
+                    .verify(buffer, offsets, new ForkJoinPool(2));
+            Assert.assertEquals(payloads.length, result.size());
+            Assert.assertEquals(6, result.getFailureCount());
+            Assert.assertNull(result.getReason(0));
+            Assert.assertNull(result.getReason(1));
+            Assert.assertEquals(PromptPayVerifier.Reason.CRC_MISMATCH, result.getReason(2));
+            Assert.assertNull(result.getReason(3));
+            Assert.assertEquals(PromptPayVerifier.Reason.MISSING_CRC, result.getReason(4));
+            Assert.assertEquals(PromptPayVerifier.Reason.MISSING_CRC, result.getReason(5));
+            Assert.assertNull(result.getReason(6));
+            Assert.assertEquals(PromptPayVerifier.Reason.CRC_MISMATCH, result.getReason(7));
+            Assert.assertEquals(PromptPayVerifier.Reason.MALFORMED, result.getReason(8));
+            Assert.assertEquals(PromptPayVerifier.Reason.MALFORMED, result.getReason(9));
+            Assert.assertFalse(result.isFailed(10));
+
+            BitSet expected = new BitSet();
+            expected.set(2);
+            expected.set(4, 6);
+            expected.set(7, 10);
+            Assert.assertEquals(expected, result.getFailures());
+        }
+    }
+
+    @Test
+    public void testVerifyInterleavedLanesAgreeWithSingleCrc_thenSuccess() {
+        // Rows of different lengths, so every lane finishes its own tail after the interleaved part
+        String[] payloads = new String[37];
+        for (int i = 0; i < payloads.length; i++) {
+            ThaiQRPromptPay.Builder.BillPaymentBuilderOptionalDetail builder = new ThaiQRPromptPay.Builder().dynamicQR()
+                    .billPayment().billerId("000000000000099").ref1(Integer.toString(i * 7919));
+            if (i % 3 == 0) {
+                builder.ref2("REF" + i);
+            }
+            if (i % 5 == 0) {
+                builder.amount((long) i * 101);
+            }
+            payloads[i] = i % 4 == 1 ? tamper(builder.build().generateContent()) : builder.build().generateContent();
+        }
+        PromptPayVerifier.Result result = new PromptPayVerifier().chunkSize(5).verify(concat(payloads), offsets);
+
+        for (int i = 0; i < payloads.length; i++) {
+            byte[] payload = payloads[i].getBytes(StandardCharsets.US_ASCII);
+            boolean crcMatches = Helper.crc16(payload, 0, payload.length - 4)
+                    == Integer.parseInt(payloads[i].substring(payloads[i].length() - 4), 16);
+            Assert.assertEquals("row " + i, !crcMatches, result.isFailed(i));
+        }
+    }
+
+    @Test
+    public void testVerifyBatchResult_thenSuccess() {
+        PromptPayBatch.Result batch = PromptPayBatch.dynamicQR().generate(
+                new String[]{"000000000000099", "000000000000099", "00000000000A1"},
+                new String[]{"1", "2", "3"}, null, null, null);
+        PromptPayVerifier.Result result = new PromptPayVerifier().verify(batch);
+
+        Assert.assertFalse(result.isFailed(0));
+        Assert.assertFalse(result.isFailed(1));
+        Assert.assertEquals(PromptPayVerifier.Reason.NOT_GENERATED, result.getReason(2));
+        Assert.assertEquals(1, result.getFailureCount());
+    }
+
+    @Test
+    public void testVerifyCrcOnly_thenSuccess() {
+        byte[] buffer = concat(CREDIT_TRANSFER, withCrc("000201010211"), tamper(BILL_PAYMENT), "|000000000000099\nX");
+        PromptPayVerifier.Result result = new PromptPayVerifier().checkStructure(false).verify(buffer, offsets);
+
+        Assert.assertFalse(result.isFailed(0));
+        Assert.assertFalse(result.isFailed(1));
+        Assert.assertEquals(PromptPayVerifier.Reason.CRC_MISMATCH, result.getReason(2));
+        Assert.assertEquals(PromptPayVerifier.Reason.MALFORMED, result.getReason(3));
+    }
+
+    @Test
+    public void testVerifyLowerCaseCrc_thenFailure() {
+        String crc = BILL_PAYMENT.substring(BILL_PAYMENT.length() - 4);
+        Assert.assertNotEquals(crc, crc.toLowerCase());
+        byte[] buffer = concat(BILL_PAYMENT.substring(0, BILL_PAYMENT.length() - 4) + crc.toLowerCase(), BILL_PAYMENT);
+        PromptPayVerifier.Result result = new PromptPayVerifier().verify(buffer, offsets);
+
+        Assert.assertEquals(PromptPayVerifier.Reason.MISSING_CRC, result.getReason(0));
+        Assert.assertFalse(result.isFailed(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testVerifyOffsetsOutOfBuffer_thenFailure() {
+        new PromptPayVerifier().verify(new byte[10], new int[]{0, 11});
+    }
+}
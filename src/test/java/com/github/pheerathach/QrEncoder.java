@@ -0,0 +1,69 @@
+package com.github.pheerathach;
+
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Encodes a QR code exactly as {@link com.google.zxing.qrcode.QRCodeWriter} does with the hints of an
+ * {@link EncodingProfile}, stopping at the {@link QRCode} (and its version). The reference the modules of
+ * {@link MatrixEncoder} are checked against.
+ */
+final class QrEncoder {
+
+    private QrEncoder() {
+
+    }
+
+    static QRCode encode(String content) throws WriterException {
+        return encode(content, EncodingProfile.DEFAULT);
+    }
+
+    static QRCode encode(String content, EncodingProfile profile) throws WriterException {
+        if (content.isEmpty()) {
+            throw new IllegalArgumentException("Found empty contents");
+        }
+        if (profile.equals(EncodingProfile.DEFAULT)) {
+            return Encoder.encode(content, ErrorCorrectionLevel.L);
+        }
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        if (profile.getCharset() != null) {
+            hints.put(EncodeHintType.CHARACTER_SET, profile.getCharset().name());
+        }
+        if (profile.getVersion() != 0) {
+            hints.put(EncodeHintType.QR_VERSION, profile.getVersion());
+        } else if (profile.getMinVersion() != 0) {
+            hints.put(EncodeHintType.QR_VERSION, profile.getMinVersion());
+            try {
+                return Encoder.encode(content, profile.getErrorCorrection(), hints);
+            } catch (WriterException e) {
+                // Does not fit the minimum version, so any version it fits is larger
+                hints.remove(EncodeHintType.QR_VERSION);
+            }
+        }
+        return Encoder.encode(content, profile.getErrorCorrection(), hints);
+    }
+
+    static QrMatrix toMatrix(QRCode code, int margin, int pngCompressionLevel) {
+        ByteMatrix matrix = code.getMatrix();
+        int size = matrix.getWidth();
+        int rowWords = (size + 31) / 32;
+        int[] bits = new int[rowWords * size];
+        for (int y = 0; y < size; y++) {
+            byte[] row = matrix.getArray()[y];
+            for (int x = 0; x < size; x++) {
+                if (row[x] == 1) {
+                    bits[y * rowWords + (x >>> 5)] |= 1 << (x & 31);
+                }
+            }
+        }
+        return QrMatrix.of(code.getVersion().getVersionNumber(), code.getECLevel(), size, margin, pngCompressionLevel,
+                bits);
+    }
+}
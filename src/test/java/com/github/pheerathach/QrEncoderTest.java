@@ -0,0 +1,79 @@
+package com.github.pheerathach;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class QrEncoderTest {
+
+    private static final String CONTENT = "00020101021129370016A000000677010111011300668123456785802TH53037645406100.2563047C8C";
+
+    @Test
+    public void testRenderMatchesQRCodeWriter_thenSuccess() throws WriterException {
+        int[][] sizes = {{0, 0}, {1, 1}, {29, 29}, {37, 37}, {200, 200}, {300, 250}, {250, 300}, {1001, 1001}};
+        for (int[] size : sizes) {
+            Assert.assertEquals(size[0] + "x" + size[1],
+                    new QRCodeWriter().encode(CONTENT, BarcodeFormat.QR_CODE, size[0], size[1]),
+                    QrEncoder.toMatrix(QrEncoder.encode(CONTENT), 4, 1).toBitMatrix(size[0], size[1]));
+        }
+    }
+
+    @Test
+    public void testProfileMatchesQRCodeWriterHints_thenSuccess() throws WriterException {
+        String lowerCase = CONTENT.toLowerCase();
+        EncodingProfile profile = new EncodingProfile.Builder()
+                .errorCorrection(ErrorCorrectionLevel.Q)
+                .margin(1)
+                .version(10)
+                .charset(StandardCharsets.UTF_8)
+                .build();
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.Q);
+        hints.put(EncodeHintType.MARGIN, 1);
+        hints.put(EncodeHintType.QR_VERSION, 10);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        for (String content : new String[]{CONTENT, lowerCase}) {
+            Assert.assertEquals(new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, 300, 300, hints),
+                    QrEncoder.toMatrix(QrEncoder.encode(content, profile), profile.getMargin(), 1).toBitMatrix(300, 300));
+        }
+    }
+
+    @Test
+    public void testMinVersion_thenSuccess() throws WriterException {
+        Assert.assertEquals(6, QrEncoder.encode(CONTENT, new EncodingProfile.Builder().minVersion(6).build())
+                .getVersion().getVersionNumber());
+        // Does not fit version 2, so the smallest version it fits is used
+        Assert.assertEquals(4, QrEncoder.encode(CONTENT, new EncodingProfile.Builder().minVersion(2).build())
+                .getVersion().getVersionNumber());
+        Assert.assertEquals(6, QrEncoder.encode(CONTENT, new EncodingProfile.Builder()
+                .errorCorrection(ErrorCorrectionLevel.H).minVersion(2).build()).getVersion().getVersionNumber());
+    }
+
+    @Test(expected = WriterException.class)
+    public void testContentDoesNotFitVersion_thenFailure() throws WriterException {
+        QrEncoder.encode(CONTENT, new EncodingProfile.Builder().version(2).build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVersionOutOfRange_thenFailure() {
+        new EncodingProfile.Builder().version(41);
+    }
+
+    @Test
+    public void testEncodeReportsVersion_thenSuccess() throws WriterException {
+        Assert.assertEquals(4, QrEncoder.encode(CONTENT).getVersion().getVersionNumber());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRenderNegativeSize_thenFailure() throws WriterException {
+        QrEncoder.toMatrix(QrEncoder.encode(CONTENT), 4, 1).toBitMatrix(-1, 100);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.pheerathach;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+public class QrMatrixTest {
+
+    private static ThaiQRPromptPay billPayment() {
+        return new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("010555012345601")
+                .ref1("INV0001")
+                .amount(new BigDecimal("1500.00"))
+                .build();
+    }
+
+    @Test
+    public void testDrawsSameImagesAsQr_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay qr = billPayment();
+        QrMatrix matrix = qr.toMatrix();
+        for (int size : new int[]{0, 64, 300, 1200}) {
+            Assert.assertArrayEquals(qr.drawToByteArray(size, size), matrix.drawToByteArray(size, size));
+        }
+        Assert.assertEquals(qr.drawToBase64(200, 150), matrix.drawToBase64(200, 150));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        matrix.drawTo(300, 300, out);
+        Assert.assertArrayEquals(qr.drawToByteArray(300, 300), out.toByteArray());
+    }
+
+    @Test
+    public void testModulesMatchQRCodeWriter_thenSuccess() throws WriterException {
+        ThaiQRPromptPay qr = billPayment();
+        QrMatrix matrix = qr.toMatrix();
+        // A size of 0 makes ZXing return one pixel per module, with a quiet zone of 4
+        BitMatrix reference = new QRCodeWriter().encode(qr.generateContent(), BarcodeFormat.QR_CODE, 0, 0);
+
+        Assert.assertEquals(reference.getWidth(), matrix.getSize() + 8);
+        Assert.assertEquals(ErrorCorrectionLevel.L, matrix.getErrorCorrection());
+        Assert.assertEquals((matrix.getSize() - 17) / 4, matrix.getVersion());
+        for (int y = 0; y < matrix.getSize(); y++) {
+            for (int x = 0; x < matrix.getSize(); x++) {
+                Assert.assertEquals(x + "," + y, reference.get(x + 4, y + 4), matrix.isDark(x, y));
+            }
+        }
+        Assert.assertEquals(reference, matrix.toBitMatrix(0, 0));
+    }
+
+    @Test
+    public void testEncodingProfile_thenSuccess() throws IOException, WriterException {
+        EncodingProfile profile = new EncodingProfile.Builder().errorCorrection(ErrorCorrectionLevel.M).margin(2).version(7).build();
+        ThaiQRPromptPay qr = billPayment();
+        QrMatrix matrix = qr.toMatrix(profile);
+
+        Assert.assertEquals(7, matrix.getVersion());
+        Assert.assertEquals(45, matrix.getSize());
+        Assert.assertEquals(2, matrix.getMargin());
+        Assert.assertArrayEquals(qr.drawToByteArray(250, 250, profile), matrix.drawToByteArray(250, 250));
+    }
+
+    @Test
+    public void testDrawToSvg_thenSuccess() throws IOException, WriterException {
+        QrMatrix matrix = billPayment().toMatrix();
+        StringBuilder svg = new StringBuilder();
+        matrix.drawToSvg(250, 250, svg);
+        int modules = matrix.getSize() + 8;
+
+        Assert.assertTrue(svg.toString().startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"250\" height=\"250\" viewBox=\"0 0 "
+                + modules + " " + modules + "\""));
+        // The top left finder pattern starts with a run of 7 dark modules inside the quiet zone
+        Assert.assertTrue(svg.toString().contains("d=\"M4 4h7v1h-7z"));
+        Assert.assertTrue(svg.toString().endsWith("\"/></svg>"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testModuleOutsideMatrix_thenFailure() throws WriterException {
+        QrMatrix matrix = billPayment().toMatrix();
+        matrix.isDark(matrix.getSize(), 0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.pheerathach;
+
+import com.google.zxing.common.reedsolomon.GenericGF;
+import com.google.zxing.common.reedsolomon.ReedSolomonEncoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class ReedSolomonTest {
+
+    @Test
+    public void testMatchesZxing_thenSuccess() {
+        Random random = new Random(42);
+        ReedSolomonEncoder reference = new ReedSolomonEncoder(GenericGF.QR_CODE_FIELD_256);
+        for (int numEc = 1; numEc <= 30; numEc++) {
+            for (int length : new int[]{1, 2, 19, 55, 123}) {
+                byte[] data = new byte[length + 3];
+                random.nextBytes(data);
+                int[] toEncode = new int[length + numEc];
+                for (int i = 0; i < length; i++) {
+                    toEncode[i] = data[3 + i] & 0xFF;
+                }
+                reference.encode(toEncode, numEc);
+
+                byte[] ec = new byte[numEc + 5];
+                random.nextBytes(ec);
+                ReedSolomon.encode(data, 3, length, ec, 5, numEc);
+                for (int i = 0; i < numEc; i++) {
+                    Assert.assertEquals(numEc + "/" + length + "/" + i, toEncode[length + i], ec[5 + i] & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMultiply_thenSuccess() {
+        Assert.assertEquals(0, ReedSolomon.multiply(0, 7));
+        Assert.assertEquals(0xCA, ReedSolomon.multiply(0xCA, 1));
+        // x^8 reduced by the primitive polynomial 0x11D
+        Assert.assertEquals(0x1D, ReedSolomon.multiply(0x80, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyErrorCorrectionCodewords_thenFailure() {
+        ReedSolomon.encode(new byte[10], 0, 10, new byte[31], 0, 31);
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.pheerathach;
+
+import com.google.zxing.WriterException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+public class RenderCacheTest {
+
+    private static ThaiQRPromptPay creditTransfer(RenderCache cache, String amount) {
+        return new ThaiQRPromptPay.Builder()
+                .renderCache(cache)
+                .dynamicQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+
+    @Test
+    public void testDrawSameContentAndSizeIsHit_thenSuccess() throws IOException, WriterException {
+        RenderCache cache = new RenderCache(1 << 20);
+        byte[] first = creditTransfer(cache, "100.25").drawToByteArray(300, 300);
+        byte[] second = creditTransfer(cache, "100.25").drawToByteArray(300, 300);
+
+        Assert.assertArrayEquals(first, second);
+        Assert.assertArrayEquals(first, creditTransfer(null, "100.25").drawToByteArray(300, 300));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(first.length, cache.getByteSize());
+    }
+
+    @Test
+    public void testDrawDifferentSizeOrContentIsMiss_thenSuccess() throws IOException, WriterException {
+        RenderCache cache = new RenderCache(1 << 20);
+        ThaiQRPromptPay qr = creditTransfer(cache, "100.25");
+        qr.drawToBase64(300, 300);
+        qr.drawToBase64(300, 400);
+        creditTransfer(cache, "100.26").drawToBase64(300, 300);
+
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(3, cache.getMissCount());
+        Assert.assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testDrawDifferentEncodingProfileIsMiss_thenSuccess() throws IOException, WriterException {
+        RenderCache cache = new RenderCache(1 << 20);
+        ThaiQRPromptPay qr = creditTransfer(cache, "100.25");
+        qr.drawToByteArray(300, 300);
+        qr.drawToByteArray(300, 300, new EncodingProfile.Builder().margin(2).build());
+        qr.drawToByteArray(300, 300, new EncodingProfile.Builder().margin(2).build());
+        qr.drawToByteArray(300, 300, EncodingProfile.DEFAULT);
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testReturnedArrayDoesNotCorruptCache_thenSuccess() throws IOException, WriterException {
+        RenderCache cache = new RenderCache(1 << 20);
+        ThaiQRPromptPay qr = creditTransfer(cache, "100.25");
+        byte[] image = qr.drawToByteArray(300, 300);
+        byte[] expected = image.clone();
+        image[0] = 0;
+
+        Assert.assertArrayEquals(expected, qr.drawToByteArray(300, 300));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay probe = creditTransfer(null, "1.00");
+        int imageLength = probe.drawToByteArray(300, 300).length;
+        RenderCache cache = new RenderCache(imageLength * 2L + imageLength / 2);
+
+        ThaiQRPromptPay a = creditTransfer(cache, "1.00");
+        ThaiQRPromptPay b = creditTransfer(cache, "2.00");
+        ThaiQRPromptPay c = creditTransfer(cache, "3.00");
+        a.drawToByteArray(300, 300);
+        b.drawToByteArray(300, 300);
+        a.drawToByteArray(300, 300);
+        c.drawToByteArray(300, 300);
+
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(2, cache.size());
+        Assert.assertTrue(cache.getByteSize() <= cache.getMaxBytes());
+        a.drawToByteArray(300, 300);
+        Assert.assertEquals(2, cache.getHitCount());
+        b.drawToByteArray(300, 300);
+        Assert.assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void testImageLargerThanLimitIsNotCached_thenSuccess() throws IOException, WriterException {
+        RenderCache cache = new RenderCache(16);
+        creditTransfer(cache, "1.00").drawToByteArray(300, 300);
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getByteSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveLimit_thenFailure() {
+        new RenderCache(0);
+    }
+
+    @Test
+    public void testEqualsAndHashCode_thenSuccess() {
+        ThaiQRPromptPay qr = creditTransfer(null, "100.25");
+        ThaiQRPromptPay sameFields = creditTransfer(new RenderCache(1024), "100.25");
+        ThaiQRPromptPay otherAmount = creditTransfer(null, "100.26");
+        ThaiQRPromptPay billPayment = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("0112345678")
+                .ref1("CUSTOMER001")
+                .amount(new BigDecimal("100.25"))
+                .build();
+
+        Assert.assertEquals(qr, sameFields);
+        Assert.assertEquals(qr.hashCode(), sameFields.hashCode());
+        Assert.assertNotEquals(qr, otherAmount);
+        Assert.assertNotEquals(qr, billPayment);
+        Assert.assertNotEquals(qr, null);
+    }
+}
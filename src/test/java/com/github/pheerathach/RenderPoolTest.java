@@ -0,0 +1,118 @@
+package com.github.pheerathach;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class RenderPoolTest {
+
+    private static ThaiQRPromptPay qr() {
+        return new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+    }
+
+    @Test
+    public void testDrawAsyncOnDefaultPool_thenSuccess() throws Exception {
+        ThaiQRPromptPay qr = qr();
+        Assert.assertArrayEquals(qr.drawToByteArray(200, 200), qr.drawToByteArrayAsync(200, 200).get());
+        Assert.assertEquals(qr.drawToBase64(200, 200), qr.drawToBase64Async(200, 200).get());
+    }
+
+    @Test
+    public void testDrawAsyncOnCustomPool_thenSuccess() throws Exception {
+        ThreadPoolExecutor pool = RenderPool.create(1, 1);
+        try {
+            ThaiQRPromptPay qr = qr();
+            Assert.assertArrayEquals(qr.drawToByteArray(100, 100), qr.drawToByteArrayAsync(100, 100, pool).get());
+            String threadName = pool.submit(() -> Thread.currentThread().getName()).get();
+            Assert.assertTrue(threadName, threadName.startsWith("promptpay-render-"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDrawAsyncWhenPoolIsOverloaded_thenFailure() throws Exception {
+        ThreadPoolExecutor pool = RenderPool.create(1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            Runnable blocker = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            pool.execute(blocker);
+            pool.execute(blocker);
+
+            CompletableFuture<byte[]> rejected = qr().drawToByteArrayAsync(100, 100, pool);
+            Assert.assertTrue(rejected.isCompletedExceptionally());
+            try {
+                rejected.get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+                Assert.assertEquals("Render pool is overloaded, 1 draw(s) are already waiting.", e.getCause().getMessage());
+            }
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDrawAsyncToInvalidPath_thenFailure() throws InterruptedException {
+        try {
+            qr().drawAsync(100, 100, new File("/nonexistent-directory/qr.png")).get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof FileNotFoundException);
+        }
+    }
+
+    @Test
+    public void testDrawAsyncThrowingError_thenFailure() throws InterruptedException, TimeoutException {
+        ThaiQRPromptPay qr = qr();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PromptPayInstrumentation.setListener(new PromptPayListener() {
+            @Override
+            public void onStageStarted(Stage stage) {
+                throw new StackOverflowError();
+            }
+        });
+        try {
+            qr.drawToByteArrayAsync(100, 100, executor).get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof StackOverflowError);
+        } finally {
+            PromptPayInstrumentation.setListener(null);
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateWithoutThreads_thenFailure() {
+        RenderPool.create(0, 1);
+    }
+}
@@ -1,13 +1,29 @@
 package com.github.pheerathach;
 
+import com.google.zxing.BinaryBitmap;
 import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
 
 public class ThaiQRPromptPayTest {
 
@@ -47,6 +63,17 @@ public class ThaiQRPromptPayTest {
                 .build();
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreditTransferStaticQRMobileNumberWithNonAsciiCountryCode_thenFailure() {
+        new ThaiQRPromptPay.Builder()
+                .countryCode("\u0E44\u0E17")
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0000000000")
+                .build()
+                .generateContent();
+    }
+
     @Test
     public void testCreditTransferStaticQRMobileNumberWithCurrencyCodeAndAmount_thenSuccess() {
         ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
@@ -845,6 +872,75 @@ public class ThaiQRPromptPayTest {
         qr.drawToByteArray(0, -10);
     }
 
+    @Test
+    public void testDrawToOutputStream_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0123456789")
+                .amount(new BigDecimal("2.36"))
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        qr.drawTo(300, 300, out);
+        Assert.assertArrayEquals(qr.drawToByteArray(300, 300), out.toByteArray());
+    }
+
+    @Test
+    public void testDrawToChannel_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0123456789")
+                .amount(new BigDecimal("2.36"))
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        qr.drawTo(300, 300, Channels.newChannel(out));
+        Assert.assertArrayEquals(qr.drawToByteArray(300, 300), out.toByteArray());
+    }
+
+    @Test
+    public void testDrawToByteBuffer_thenSuccess() throws IOException, WriterException {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0123456789")
+                .amount(new BigDecimal("2.36"))
+                .build();
+        byte[] expected = qr.drawToByteArray(300, 300);
+
+        ByteBuffer heap = ByteBuffer.allocate(expected.length + 10);
+        heap.position(10);
+        Assert.assertEquals(expected.length, qr.drawTo(300, 300, heap));
+        Assert.assertEquals(expected.length + 10, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        Assert.assertEquals(expected.length, qr.drawTo(300, 300, direct));
+        byte[] actual = new byte[expected.length];
+        ((ByteBuffer) direct.flip()).get(actual);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDrawToByteBufferWithoutEnoughRoom_thenFailure() throws WriterException {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0123456789")
+                .amount(new BigDecimal("2.36"))
+                .build();
+
+        ByteBuffer dst = ByteBuffer.allocate(100);
+        dst.position(3);
+        try {
+            qr.drawTo(300, 300, dst);
+            Assert.fail();
+        } catch (BufferOverflowException e) {
+            Assert.assertEquals(3, dst.position());
+        }
+    }
+
     // Bill Payment
     // Static QR
     @Test
@@ -1990,4 +2086,416 @@ public class ThaiQRPromptPayTest {
                 .amount(new BigDecimal("10.00"))
                 .build();
     }
+
+    @Test
+    public void testGenerateContentIntoByteArrayEqualsGenerateContent_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("1234")
+                .ref2("2345")
+                .ref3("67890")
+                .amount(new BigDecimal("100.35"))
+                .build();
+
+        byte[] buffer = new byte[qr.contentLength() + 3];
+        int written = qr.generateContentInto(buffer, 3);
+        Assert.assertEquals(qr.contentLength(), written);
+        Assert.assertEquals(qr.generateContent(), new String(buffer, 3, written, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testGenerateContentIntoByteBufferEqualsGenerateContent_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .bot()
+                .billPayment()
+                .billerId("000000000009132")
+                .ref1("321312312")
+                .amount(new BigDecimal("11.00"))
+                .build();
+
+        ByteBuffer heap = ByteBuffer.allocate(128);
+        ByteBuffer direct = ByteBuffer.allocateDirect(128);
+        Assert.assertEquals(qr.contentLength(), qr.generateContentInto(heap));
+        Assert.assertEquals(qr.contentLength(), qr.generateContentInto(direct));
+        heap.flip();
+        direct.flip();
+        Assert.assertEquals(heap, direct);
+        Assert.assertEquals(qr.generateContent(), StandardCharsets.US_ASCII.decode(heap).toString());
+    }
+
+    @Test
+    public void testGenerateContentTwiceWithMobileNumber_thenSameContent() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0012345678")
+                .build();
+
+        Assert.assertEquals(qr.generateContent(), qr.generateContent());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGenerateContentIntoByteArrayTooSmall_thenFailure() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0000000000")
+                .build();
+
+        qr.generateContentInto(new byte[qr.contentLength() - 1], 0);
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void testGenerateContentIntoByteBufferTooSmall_thenFailure() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0000000000")
+                .build();
+
+        qr.generateContentInto(ByteBuffer.allocate(10));
+    }
+
+    @Test
+    public void testBillPaymentAmountInSatangEqualsAmountInBigDecimal_thenSuccess() {
+        ThaiQRPromptPay satang = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("6300002")
+                .ref2("121214564541")
+                .amount(10035L)
+                .build();
+
+        String result = satang.generateContent();
+        // Assert Transaction Amount
+        Assert.assertEquals("5406100.35", result.substring(87, 97));
+        // Assert Checksum
+        Assert.assertEquals("63043ACE", result.substring(103, 111));
+    }
+
+    @Test
+    public void testCreditTransferAmountInSatang_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0000000000")
+                .amount(5L)
+                .build();
+
+        String result = qr.generateContent();
+        // Assert Transaction Amount
+        Assert.assertEquals("54040.05", result.substring(60, 68));
+    }
+
+    @Test
+    public void testBillPaymentBotAmountInSatang_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .bot()
+                .billPayment()
+                .billerId("000000000009132")
+                .ref1("321312312")
+                .amount(999999999999L)
+                .build();
+
+        Assert.assertEquals("999999999999", qr.generateContent().split("\n")[3]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBillPaymentAmountInSatangBelowZero_thenFailure() {
+        new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("1234")
+                .amount(-1L)
+                .build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreditTransferAmountInSatangMoreThanThirteenChars_thenFailure() {
+        new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0000000000")
+                .amount(1000000000000L)
+                .build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreditTransferAmountMoreThanThirteenChars_thenFailure() {
+        new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0000000000")
+                .amount(new BigDecimal("10000000000.00"))
+                .build();
+    }
+
+    @Test
+    public void testAmountFormattingFromConcurrentThreads_thenSuccess() throws InterruptedException {
+        final String[] failures = new String[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long base = t * 100000L;
+            threads[t] = new Thread(() -> {
+                for (long satang = base; satang < base + 5000; satang++) {
+                    String expected = new BigDecimal(satang).movePointLeft(2).toPlainString();
+                    String result = new ThaiQRPromptPay.Builder()
+                            .staticQR()
+                            .creditTransfer()
+                            .mobileNumber("0000000000")
+                            .amount(satang)
+                            .build()
+                            .generateContent();
+                    if (!result.contains("54" + String.format("%02d", expected.length()) + expected + "5802")) {
+                        failures[0] = result;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failures[0]);
+    }
+
+    @Test
+    public void testGenerateContentIsMemoized_thenSuccess() {
+        ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+
+        String content = qr.generateContent();
+        Assert.assertSame(content, qr.generateContent());
+        Assert.assertSame(content, qr.toString());
+        Assert.assertEquals("01130066812345678", content.substring(36, 53));
+
+        byte[] dst = new byte[qr.contentLength()];
+        qr.generateContentInto(dst, 0);
+        // Writing into the caller's array must not expose the cached content
+        dst[0] = 'X';
+        Assert.assertEquals(content, qr.generateContent());
+        qr.generateContentInto(dst, 0);
+        Assert.assertEquals(content, new String(dst, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testGenerateContentOfSharedInstanceFromConcurrentThreads_thenSuccess() throws InterruptedException {
+        final ThaiQRPromptPay qr = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("000000000000099")
+                .ref1("15123141")
+                .ref3("ABCD")
+                .amount(20000L)
+                .build();
+        final String expected = new ThaiQRPromptPay.Builder()
+                .dynamicQR()
+                .billPayment()
+                .billerId("000000000000099")
+                .ref1("15123141")
+                .ref3("ABCD")
+                .amount(20000L)
+                .build()
+                .generateContent();
+        final String[] failures = new String[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                byte[] dst = new byte[expected.length()];
+                for (int i = 0; i < 1000; i++) {
+                    qr.generateContentInto(dst, 0);
+                    if (!expected.equals(qr.generateContent()) || !expected.equals(new String(dst, StandardCharsets.US_ASCII))) {
+                        failures[0] = qr.generateContent();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failures[0]);
+    }
+
+    @Test
+    public void testBillPaymentTryBuildWithValidFields_thenSuccess() {
+        ValidationResult result = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1("1234")
+                .ref2("2345")
+                .tryBuild();
+
+        Assert.assertTrue(result.isValid());
+        Assert.assertTrue(result.getViolations().isEmpty());
+        Assert.assertEquals("6304E5DA", result.get().generateContent().substring(82, 90));
+    }
+
+    @Test
+    public void testBillPaymentTryBuildListsAllViolations_thenFailure() {
+        ValidationResult result = new ThaiQRPromptPay.Builder()
+                .deferValidation()
+                .currencyCode("ABCD")
+                .staticQR()
+                .billPayment()
+                .billerId("00000000000000001")
+                .ref1("1234#")
+                .ref3("678-90")
+                .amount(new BigDecimal("-1.234"))
+                .tryBuild();
+
+        Assert.assertFalse(result.isValid());
+        List<ValidationResult.Violation> violations = result.getViolations();
+        Assert.assertEquals(6, violations.size());
+        Assert.assertEquals(ValidationResult.ErrorCode.NOT_NUMERIC, violations.get(0).getCode());
+        Assert.assertEquals(ValidationResult.ErrorCode.TOO_LONG, violations.get(1).getCode());
+        Assert.assertEquals("Biller ID", violations.get(2).getField());
+        Assert.assertEquals(ValidationResult.ErrorCode.TOO_LONG, violations.get(2).getCode());
+        Assert.assertEquals("Reference 1", violations.get(3).getField());
+        Assert.assertEquals(ValidationResult.ErrorCode.NOT_ALPHANUMERIC, violations.get(3).getCode());
+        Assert.assertEquals("Reference 3", violations.get(4).getField());
+        Assert.assertEquals(ValidationResult.ErrorCode.NEGATIVE_AMOUNT, violations.get(5).getCode());
+        Assert.assertEquals("Currency Code must contain only numbers.", violations.get(0).getMessage());
+    }
+
+    @Test
+    public void testCreditTransferValidateDoesNotBuild_thenSuccess() {
+        ValidationResult result = new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .creditTransfer()
+                .nationalId("1234567890123")
+                .validate();
+
+        Assert.assertTrue(result.isValid());
+        Assert.assertNull(result.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreditTransferTryBuildGetWithViolation_thenFailure() {
+        ValidationResult result = new ThaiQRPromptPay.Builder()
+                .deferValidation()
+                .staticQR()
+                .creditTransfer()
+                .eWalletId("12345A")
+                .tryBuild();
+
+        Assert.assertEquals(ValidationResult.ErrorCode.NOT_NUMERIC, result.getViolations().get(0).getCode());
+        result.get();
+    }
+
+    @Test
+    public void testSetterThrowsBeforeBuild_thenFailure() {
+        ThaiQRPromptPay.Builder.BillPaymentBuilderBillerId billPayment = new ThaiQRPromptPay.Builder().staticQR().billPayment();
+        try {
+            billPayment.billerId("00000000000000001");
+            Assert.fail("Setter should reject an invalid value");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Biller ID must not be more than 15 char(s).", e.getMessage());
+        }
+        try {
+            new ThaiQRPromptPay.Builder().currencyCode("ABCD");
+            Assert.fail("Setter should reject an invalid value");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Currency Code must contain only numbers.", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBillPaymentStaticQRWithNullRef1_thenFailure() {
+        new ThaiQRPromptPay.Builder()
+                .staticQR()
+                .billPayment()
+                .billerId("0000000000001")
+                .ref1(null)
+                .build();
+    }
+
+    @Test
+    public void testStaticFactoriesMatchBuilder_thenSuccess() {
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().dynamicQR().billPayment().billerId("000000000000099")
+                        .ref1("15123141").ref2("3654112").ref3("ABCD").amount(new BigDecimal("200.00")).build(),
+                ThaiQRPromptPay.billPayment("000000000000099", "15123141", "3654112", "ABCD", 20000L, true));
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().billPayment().billerId("000000000000099")
+                        .ref1("15123141").build().generateContent(),
+                ThaiQRPromptPay.billPayment("000000000000099", "15123141", null, null, ThaiQRPromptPay.NO_AMOUNT, false).generateContent());
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().dynamicQR().creditTransfer().mobileNumber("0812345678")
+                        .amount(new BigDecimal("100.25")).build().generateContent(),
+                ThaiQRPromptPay.creditTransferMobile("0812345678", 10025L, true).generateContent());
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().creditTransfer().nationalId("1234567890123")
+                        .build().generateContent(),
+                ThaiQRPromptPay.creditTransferNationalId("1234567890123", ThaiQRPromptPay.NO_AMOUNT, false).generateContent());
+        Assert.assertEquals(new ThaiQRPromptPay.Builder().staticQR().creditTransfer().eWalletId("123456789012345")
+                        .amount(1L).build().generateContent(),
+                ThaiQRPromptPay.creditTransferEWallet("123456789012345", 1L, false).generateContent());
+    }
+
+    @Test
+    public void testStaticFactoryWithInvalidField_thenFailure() {
+        try {
+            ThaiQRPromptPay.billPayment("000000000000099", null, null, null, 100L, true);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Reference 1 is required.", e.getMessage());
+        }
+        try {
+            ThaiQRPromptPay.billPayment("000000000000099", "15123141", null, "A-1", 100L, true);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Reference 3 must contain only numbers and English characters.", e.getMessage());
+        }
+        try {
+            ThaiQRPromptPay.creditTransferMobile("08123456789", 100L, true);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Mobile Number must not be more than 10 char(s).", e.getMessage());
+        }
+        try {
+            ThaiQRPromptPay.creditTransferNationalId("1234567890123", -5L, true);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Amount must be a positive number.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDrawWithEncodingProfile_thenSuccess() throws Exception {
+        EncodingProfile profile = new EncodingProfile.Builder()
+                .errorCorrection(ErrorCorrectionLevel.H)
+                .margin(1)
+                .minVersion(8)
+                .build();
+        ThaiQRPromptPay qr = ThaiQRPromptPay.creditTransferMobile("0812345678", 10025L, true);
+        ThaiQRPromptPay withProfile = new ThaiQRPromptPay.Builder()
+                .encodingProfile(profile)
+                .dynamicQR()
+                .creditTransfer()
+                .mobileNumber("0812345678")
+                .amount(new BigDecimal("100.25"))
+                .build();
+
+        byte[] image = withProfile.drawToByteArray(300, 300);
+        Assert.assertArrayEquals(image, qr.drawToByteArray(300, 300, profile));
+        Assert.assertArrayEquals(qr.drawToByteArray(300, 300), withProfile.drawToByteArray(300, 300, EncodingProfile.DEFAULT));
+        Assert.assertFalse(Arrays.equals(image, qr.drawToByteArray(300, 300)));
+
+        // Version 8 is 49 modules, so a margin of 1 leaves room for 5 pixels per module
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        Assert.assertEquals(300, decoded.getWidth());
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(decoded)));
+        Assert.assertEquals(qr.generateContent(), new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDrawWithoutEncodingProfile_thenFailure() throws Exception {
+        ThaiQRPromptPay.creditTransferMobile("0812345678", 10025L, true).drawToByteArray(300, 300, null);
+    }
 }